@@ -17,6 +17,9 @@
 package com.datumbox.opensource;
 
 import com.datumbox.opensource.ai.AIsolver;
+import com.datumbox.opensource.ai.AlphaBetaSolver;
+import com.datumbox.opensource.ai.DepthPolicy;
+import com.datumbox.opensource.ai.Solver;
 import com.datumbox.opensource.dataobjects.ActionStatus;
 import com.datumbox.opensource.game.Board;
 import com.datumbox.opensource.dataobjects.Direction;
@@ -30,6 +33,22 @@ import java.util.Scanner;
  * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
  */
 public class ConsoleGame {
+    
+    /**
+     * The solver of the hints. It is shared by all the games, so that its
+     * transposition table and buffers are reused from one move to the next.
+     * The default is created directly, so that the game also starts when the
+     * registry of the solvers is not on the classpath.
+     */
+    private static Solver solver = new AlphaBetaSolver();
+    
+    /**
+     * The policy which chooses the depth of the hints. Most hints of the
+     * middle game are searched at depth 5, while the late game, with few empty
+     * cells or many different tiles, is searched at depth 7 to 9 and its hints
+     * take up to about 100ms instead of a few.
+     */
+    private static final DepthPolicy HINT_DEPTH = DepthPolicy.DEFAULT;
 
     /**
      * Main function of the game.
@@ -54,9 +73,11 @@ public class ConsoleGame {
                              break;
                     case 2:  calculateAccuracy();
                              break;
-                    case 3:  help();
+                    case 3:  chooseSolver(sc);
                              break;
-                    case 4:  return;
+                    case 4:  help();
+                             break;
+                    case 5:  return;
                     default: throw new Exception();
                 }
             }
@@ -81,10 +102,42 @@ public class ConsoleGame {
         System.out.println("Choices:");
         System.out.println("1. Play the 2048 Game");
         System.out.println("2. Estimate the Accuracy of AI Solver");
-        System.out.println("3. Help");
-        System.out.println("4. Quit");
+        System.out.println("3. Choose the AI Solver (current: "+solver.getName()+")");
+        System.out.println("4. Help");
+        System.out.println("5. Quit");
         System.out.println();
-        System.out.println("Enter a number from 1-4:");
+        System.out.println("Enter a number from 1-5:");
+    }
+    
+    /**
+     * Selects the solver of the hints by name
+     * 
+     * @param sc the scanner of the menu
+     */
+    public static void chooseSolver(Scanner sc) {
+        System.out.println("Available solvers: "+AIsolver.getSolverNames());
+        System.out.println("Enter the name of the solver:");
+        
+        String name = sc.next();
+        try {
+            solver = AIsolver.getSolver(name);
+            System.out.println("Using the "+solver.getName()+" solver.");
+        }
+        catch(IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+    
+    /**
+     * Finds the hint of the selected solver, with the depth chosen from the
+     * state of the board.
+     * 
+     * @param theGame
+     * @return
+     * @throws CloneNotSupportedException 
+     */
+    private static Direction findHint(Board theGame) throws CloneNotSupportedException {
+        return solver.findBestMove(theGame, HINT_DEPTH.chooseDepth(theGame));
     }
     
     /**
@@ -98,17 +151,16 @@ public class ConsoleGame {
         System.out.println("Running "+total+" games to estimate the accuracy:");
         
         for(int i=0;i<total;++i) {
-            int hintDepth = 5;
             Board theGame = new Board();
             
-            Direction hint = AIsolver.findBestMove(theGame, hintDepth);
+            Direction hint = findHint(theGame);
             
             ActionStatus result=ActionStatus.CONTINUE;
             while(result==ActionStatus.CONTINUE) {
                 result=theGame.action(hint);
-                if(hintDepth >= 5) theGame.printBoardArray();
+                theGame.printBoardArray();
                 if(result==ActionStatus.CONTINUE) {
-                    hint = AIsolver.findBestMove(theGame, hintDepth);
+                    hint = findHint(theGame);
                 }
             }
 
@@ -133,9 +185,8 @@ public class ConsoleGame {
         System.out.println("Play the 2048 Game!"); 
         System.out.println("Use 8 for UP, 6 for RIGHT, 2 for DOWN and 4 for LEFT. Type a to play automatically and q to exit. Press enter to submit your choice.");
         
-        int hintDepth = 5;
         Board theGame = new Board();
-        Direction hint = AIsolver.findBestMove(theGame, hintDepth);
+        Direction hint = findHint(theGame);
         printBoard(theGame.getBoardArray(), theGame.getScore(), hint);
         
         try {
@@ -174,7 +225,7 @@ public class ConsoleGame {
                 }
                 
                 if(result==ActionStatus.CONTINUE || result==ActionStatus.INVALID_MOVE ) {
-                    hint = AIsolver.findBestMove(theGame, hintDepth);
+                    hint = findHint(theGame);
                 }
                 else {
                     hint = null;
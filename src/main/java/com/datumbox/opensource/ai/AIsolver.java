@@ -18,9 +18,17 @@ package com.datumbox.opensource.ai;
 
 import com.datumbox.opensource.dataobjects.Direction;
 import com.datumbox.opensource.game.Board;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The AIsolver class that uses Artificial Intelligence to estimate the next move.
@@ -44,6 +52,538 @@ public class AIsolver {
         USER
     }
     
+    /**
+     * The values of the new random cells
+     */
+    private static final int[] POSSIBLE_VALUES = {2, 4};
+    
+    /**
+     * The probability of a new random cell to be 2, out of 10
+     */
+    private static final int PROBABILITY_OF_2 = 9;
+    
+    /**
+     * The default probability below which the expectimax search stops
+     * expanding a position
+     */
+    public static final double DEFAULT_MIN_PROBABILITY = 0.0001;
+    
+    /**
+     * The maximum depth of the iterative deepening search
+     */
+    private static final int MAX_ITERATIVE_DEPTH = 30;
+    
+    /**
+     * The clock is read once every CLOCK_CHECK_INTERVAL nodes
+     */
+    private static final int CLOCK_CHECK_INTERVAL = 1024;
+    
+    /**
+     * The maximum number of new random cells searched by a chance node of the
+     * alphabeta search
+     */
+    private static final int MAX_CHANCE_BRANCHES = 16;
+    
+    /**
+     * The fork depth which disables the forking of chance nodes
+     */
+    public static final int NO_CHANCE_FORKING = 0;
+    
+    /**
+     * The log2 of the number of entries of the transposition tables
+     */
+    private static final int TRANSPOSITION_TABLE_SIZE_BITS = 18;
+    
+    /**
+     * The transposition table of every thread. The entries store complete
+     * keys, so they remain valid from one search to the next.
+     */
+    private static final ThreadLocal<TranspositionTable> TRANSPOSITION_TABLES = new ThreadLocal<TranspositionTable>() {
+        @Override
+        protected TranspositionTable initialValue() {
+            return new LocalTranspositionTable(TRANSPOSITION_TABLE_SIZE_BITS);
+        }
+    };
+    
+    /**
+     * The counter of the generations of the searches. Every search stores its
+     * entries with a new generation, so that it can replace the entries of
+     * older searches.
+     */
+    private static final AtomicInteger SEARCH_GENERATIONS = new AtomicInteger();
+    
+    /**
+     * The log2 of the number of entries of the shared transposition table
+     */
+    private static final int SHARED_TRANSPOSITION_TABLE_SIZE_BITS = 20;
+    
+    /**
+     * Holder of the transposition table shared by the threads of the Lazy
+     * SMP search, created on first use
+     */
+    private static final class SharedTableHolder {
+        private static final TranspositionTable TABLE = new SharedTranspositionTable(SHARED_TRANSPOSITION_TABLE_SIZE_BITS);
+    }
+    
+    /**
+     * Holder of the names of the registered solvers. The ServiceLoader can
+     * only read a name by creating the solver, so the providers are created
+     * once, on the first request, and the names are kept.
+     */
+    private static final class SolverNamesHolder {
+        private static final List<String> NAMES = loadSolverNames();
+        
+        private static List<String> loadSolverNames() {
+            List<String> names = new ArrayList<>();
+            for(Solver solver : ServiceLoader.load(Solver.class)) {
+                names.add(solver.getName());
+            }
+            return Collections.unmodifiableList(names);
+        }
+    }
+    
+    /**
+     * The evaluator of the searches which do not select another one
+     */
+    public static final Evaluator DEFAULT_EVALUATOR = new ClusteringEvaluator();
+    
+    /**
+     * The name of the solver used when no other is selected
+     */
+    public static final String DEFAULT_SOLVER_NAME = AlphaBetaSolver.NAME;
+    
+    /**
+     * The directions of the moves, in the order they are searched
+     */
+    private static final Direction[] DIRECTIONS = Direction.values();
+    
+    /**
+     * Scratch buffers of a single search. The search walks the tree on one
+     * mutable board and every depth owns its own buffers, so no objects are
+     * allocated per node.
+     */
+    private static final class SearchContext {
+        /**
+         * The afterstates of the user, indexed by the remaining depth
+         */
+        private final long[][] afterstates;
+        
+        /**
+         * The points of the afterstates, indexed by the remaining depth
+         */
+        private final int[][] points;
+        
+        /**
+         * The depth of the root, whose best direction must be searched
+         */
+        private final int rootDepth;
+        
+        /**
+         * The cache of the scores of the positions, or null
+         */
+        private final TranspositionTable transpositionTable;
+        
+        /**
+         * The per-thread tables which the table of the search comes from, so
+         * that forked tasks use the table of their own thread, or null when
+         * the table is shared by all the threads
+         */
+        private ThreadLocal<TranspositionTable> transpositionTables = null;
+        
+        /**
+         * The evaluator of the leaves
+         */
+        private Evaluator evaluator = DEFAULT_EVALUATOR;
+        
+        /**
+         * The generation of the search, passed to the tasks it forks
+         */
+        private int generation = 0;
+        
+        /**
+         * The best direction found at the root
+         */
+        private Direction bestDirection;
+        
+        /**
+         * The probability below which the expectimax search stops expanding
+         */
+        private final double minProbability;
+        
+        /**
+         * Whether the search has a deadline
+         */
+        private boolean timed = false;
+        
+        /**
+         * The System.nanoTime() at which the search is aborted
+         */
+        private long deadline;
+        
+        /**
+         * The number of nodes visited since the clock was last read
+         */
+        private int nodesSinceClockCheck = 0;
+        
+        /**
+         * Whether the search was aborted because the deadline passed. The
+         * scores of an aborted search are meaningless.
+         */
+        private boolean aborted = false;
+        
+        /**
+         * The chance nodes with at least this remaining depth fork their
+         * children as tasks, when the search runs in a fork/join pool
+         */
+        private int forkDepth = NO_CHANCE_FORKING;
+        
+        /**
+         * The rotation of the order in which the user moves are searched
+         */
+        private int moveOrder = 0;
+        
+        /**
+         * Set by another thread to abort the search, or null
+         */
+        private AtomicBoolean stop = null;
+        
+        /**
+         * Constructor of a template, which only passes the settings of a
+         * search to the tasks it forks. It has no buffers and can not search.
+         * 
+         * @param depth 
+         */
+        private SearchContext(int depth) {
+            this(depth, null, DEFAULT_MIN_PROBABILITY, null, null);
+        }
+        
+        /**
+         * Constructor
+         * 
+         * @param depth 
+         * @param transpositionTable 
+         */
+        private SearchContext(int depth, TranspositionTable transpositionTable) {
+            this(depth, transpositionTable, DEFAULT_MIN_PROBABILITY);
+        }
+        
+        /**
+         * Constructor
+         * 
+         * @param depth 
+         * @param transpositionTable 
+         * @param minProbability 
+         */
+        private SearchContext(int depth, TranspositionTable transpositionTable, double minProbability) {
+            this(depth, transpositionTable, minProbability, new long[depth+1][4], new int[depth+1][4]);
+        }
+        
+        /**
+         * Constructor which reuses the buffers of a previous search. The
+         * buffers must have at least depth+1 rows.
+         * 
+         * @param depth 
+         * @param transpositionTable 
+         * @param minProbability 
+         * @param afterstates 
+         * @param points 
+         */
+        private SearchContext(int depth, TranspositionTable transpositionTable, double minProbability, long[][] afterstates, int[][] points) {
+            this.afterstates = afterstates;
+            this.points = points;
+            rootDepth = depth;
+            this.transpositionTable = transpositionTable;
+            this.minProbability = minProbability;
+        }
+        
+        /**
+         * Checks whether the deadline has passed or the search was stopped,
+         * reading the clock and the stop flag only once every
+         * CLOCK_CHECK_INTERVAL calls.
+         * 
+         * @return 
+         */
+        private boolean isTimeUp() {
+            if((timed || stop!=null) && !aborted && ++nodesSinceClockCheck>=CLOCK_CHECK_INTERVAL) {
+                nodesSinceClockCheck = 0;
+                aborted = (timed && System.nanoTime()-deadline>=0) || (stop!=null && stop.get());
+            }
+            return aborted;
+        }
+    }
+    
+    /**
+     * Searches a subtree in a task of the fork/join pool. Every task searches
+     * its own copy of the board with its own scratch buffers, and with the
+     * evaluator and the transposition table of the search which forked it.
+     * When that search uses per-thread tables, the task uses the one of the
+     * worker thread which runs it.
+     */
+    private static final class SubtreeTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+        
+        /**
+         * The board of the subtree
+         */
+        private final Board board;
+        
+        /**
+         * The remaining depth of the subtree
+         */
+        private final int depth;
+        
+        /**
+         * The player to move
+         */
+        private final Player player;
+        
+        /**
+         * The depth of the root of the whole search
+         */
+        private final int rootDepth;
+        
+        /**
+         * The remaining depth from which chance nodes fork their children
+         */
+        private final int forkDepth;
+        
+        /**
+         * The generation of the whole search
+         */
+        private final int generation;
+        
+        /**
+         * The evaluator of the leaves
+         */
+        private final Evaluator evaluator;
+        
+        /**
+         * The table shared by the threads, or null
+         */
+        private final TranspositionTable transpositionTable;
+        
+        /**
+         * The per-thread tables, or null when the table is shared
+         */
+        private final ThreadLocal<TranspositionTable> transpositionTables;
+        
+        /**
+         * Constructor
+         * 
+         * @param board
+         * @param depth 
+         * @param player 
+         * @param parent the context of the search which forks the task
+         */
+        private SubtreeTask(Board board, int depth, Player player, SearchContext parent) {
+            this.board = board;
+            this.depth = depth;
+            this.player = player;
+            rootDepth = parent.rootDepth;
+            forkDepth = parent.forkDepth;
+            generation = parent.generation;
+            evaluator = parent.evaluator;
+            transpositionTables = parent.transpositionTables;
+            transpositionTable = (transpositionTables!=null)?null:parent.transpositionTable;
+        }
+        
+        @Override
+        protected Integer compute() {
+            TranspositionTable table = (transpositionTables!=null)?transpositionTables.get():transpositionTable;
+            SearchContext context = new SearchContext(rootDepth, table);
+            context.transpositionTables = transpositionTables;
+            context.evaluator = evaluator;
+            context.forkDepth = forkDepth;
+            context.generation = generation;
+            try {
+                return alphabeta(board, depth, player, context);
+            }
+            catch(CloneNotSupportedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+    
+    /**
+     * Helper of the Lazy SMP search. It searches the root with its own move
+     * order and depth only to fill the shared transposition table, until it
+     * is stopped.
+     */
+    private static final class HelperSearchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        /**
+         * The scratch of the helper, holding the private copy of the root
+         */
+        private final SearchScratch scratch;
+        
+        /**
+         * The depth of the search
+         */
+        private final int depth;
+        
+        /**
+         * The rotation of the move order
+         */
+        private final int moveOrder;
+        
+        /**
+         * The shared transposition table
+         */
+        private final TranspositionTable transpositionTable;
+        
+        /**
+         * The evaluator of the leaves
+         */
+        private final Evaluator evaluator;
+        
+        /**
+         * The generation of the search which the helper works for
+         */
+        private final int generation;
+        
+        /**
+         * The flag which stops the helper
+         */
+        private final AtomicBoolean stop;
+        
+        /**
+         * Constructor
+         * 
+         * @param scratch
+         * @param depth
+         * @param moveOrder
+         * @param transpositionTable
+         * @param evaluator
+         * @param generation
+         * @param stop 
+         */
+        private HelperSearchTask(SearchScratch scratch, int depth, int moveOrder, TranspositionTable transpositionTable, Evaluator evaluator, int generation, AtomicBoolean stop) {
+            this.scratch = scratch;
+            this.depth = depth;
+            this.moveOrder = moveOrder;
+            this.transpositionTable = transpositionTable;
+            this.evaluator = evaluator;
+            this.generation = generation;
+            this.stop = stop;
+        }
+        
+        @Override
+        protected void compute() {
+            SearchContext context = new SearchContext(depth, transpositionTable, DEFAULT_MIN_PROBABILITY, scratch.getAfterstates(), scratch.getPoints());
+            context.moveOrder = moveOrder;
+            context.evaluator = evaluator;
+            context.generation = generation;
+            context.stop = stop;
+            try {
+                alphabeta(scratch.getBoard(), depth, Player.USER, context);
+            }
+            catch(CloneNotSupportedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+    
+    /**
+     * Searches the moves of the root in parallel and picks the best one
+     * exactly like the sequential search.
+     */
+    private static final class RootSearchTask extends RecursiveTask<Direction> {
+        private static final long serialVersionUID = 1L;
+        
+        /**
+         * The root board
+         */
+        private final Board board;
+        
+        /**
+         * The depth of the root
+         */
+        private final int depth;
+        
+        /**
+         * The remaining depth from which chance nodes fork their children
+         */
+        private final int forkDepth;
+        
+        /**
+         * The generation of the search
+         */
+        private final int generation;
+        
+        /**
+         * Constructor
+         * 
+         * @param board
+         * @param depth 
+         * @param forkDepth 
+         * @param generation 
+         */
+        private RootSearchTask(Board board, int depth, int forkDepth, int generation) {
+            this.board = board;
+            this.depth = depth;
+            this.forkDepth = forkDepth;
+            this.generation = generation;
+        }
+        
+        @Override
+        protected Direction compute() {
+            long[] afterstates = new long[4];
+            int[] points = new int[4];
+            int legalMoves = board.getAfterstates(afterstates, points);
+            if(depth==0 || board.hasWon() || legalMoves==0) {
+                return null;
+            }
+            
+            //the template of the contexts of the subtrees, which use the tables of their threads
+            SearchContext context = new SearchContext(depth);
+            context.transpositionTables = TRANSPOSITION_TABLES;
+            context.forkDepth = forkDepth;
+            context.generation = generation;
+            
+            SubtreeTask[] tasks = new SubtreeTask[4];
+            List<SubtreeTask> taskList = new ArrayList<>();
+            for(Direction direction : DIRECTIONS) {
+                int code = direction.getCode();
+                if((legalMoves & (1<<code))!=0) {
+                    Board newBoard = searchBoard(board, context.evaluator);
+                    newBoard.setAfterstate(afterstates[code], points[code]);
+                    tasks[code] = new SubtreeTask(newBoard, depth-1, Player.COMPUTER, context);
+                    taskList.add(tasks[code]);
+                }
+            }
+            invokeAll(taskList);
+            
+            //same order and tie breaking as alphabeta
+            Direction bestDirection = null;
+            int bestScore = 0;
+            for(Direction direction : DIRECTIONS) {
+                SubtreeTask task = tasks[direction.getCode()];
+                if(task!=null && task.join()>=bestScore) {
+                    bestScore = task.join();
+                    bestDirection = direction;
+                }
+            }
+            return bestDirection;
+        }
+    }
+    
+    /**
+     * Copies the board for a search, which makes and takes back the moves on
+     * its private copy, and lets the evaluator prepare the copy. The copy is
+     * restored from a snapshot, so it never touches the Random Generator of
+     * the game.
+     * 
+     * @param theBoard
+     * @param evaluator
+     * @return 
+     */
+    private static Board searchBoard(Board theBoard, Evaluator evaluator) {
+        Board board = new Board(theBoard.getState());
+        evaluator.prepare(board);
+        return board;
+    }
+    
     /**
      * Method that finds the best next move.
      * 
@@ -53,46 +593,355 @@ public class AIsolver {
      * @throws CloneNotSupportedException 
      */
     public static Direction findBestMove(Board theBoard, int depth) throws CloneNotSupportedException {
-        //Map<String, Object> result = minimax(theBoard, depth, Player.USER);
+        Board board = searchBoard(theBoard, DEFAULT_EVALUATOR);
+        SearchContext context = new SearchContext(depth, TRANSPOSITION_TABLES.get());
+        context.transpositionTables = TRANSPOSITION_TABLES;
+        context.generation = SEARCH_GENERATIONS.incrementAndGet();
         
-        Map<String, Object> result = alphabeta(theBoard, depth, Player.USER);
+        alphabeta(board, depth, Player.USER, context);
         
-        return (Direction)result.get("Direction");
+        return context.bestDirection;
     }
     
     /**
-     * Finds the best move by using the Minimax algorithm.
+     * Method that finds the best next move with the minimax algorithm, which
+     * assumes that the computer places the worst new cell for the user.
      * 
      * @param theBoard
      * @param depth
-     * @param player
      * @return
      * @throws CloneNotSupportedException 
      */
-    private static Map<String, Object> minimax(Board theBoard, int depth, Player player) throws CloneNotSupportedException {
-        Map<String, Object> result = new HashMap<>();
+    public static Direction findBestMoveMinimax(Board theBoard, int depth) throws CloneNotSupportedException {
+        Board board = searchBoard(theBoard, DEFAULT_EVALUATOR);
+        SearchContext context = new SearchContext(depth, null);
+        
+        minimax(board, depth, Player.USER, context);
+        
+        return context.bestDirection;
+    }
+    
+    /**
+     * Finds a solver by name among the solvers registered with the
+     * ServiceLoader. Every call creates a new instance of the solver.
+     * 
+     * @param name
+     * @return 
+     */
+    public static Solver getSolver(String name) {
+        for(Solver solver : ServiceLoader.load(Solver.class)) {
+            if(solver.getName().equals(name)) {
+                return solver;
+            }
+        }
+        throw new IllegalArgumentException("Unknown solver: " + name);
+    }
+    
+    /**
+     * Returns the names of the solvers registered with the ServiceLoader
+     * 
+     * @return 
+     */
+    public static List<String> getSolverNames() {
+        return SolverNamesHolder.NAMES;
+    }
+    
+    /**
+     * Method that finds the best next move, evaluating the leaves with the
+     * given evaluator. The scores of other evaluators can not be reused, so
+     * the transposition table is used only by the default evaluator.
+     * 
+     * @param theBoard
+     * @param depth
+     * @param evaluator
+     * @return
+     * @throws CloneNotSupportedException 
+     */
+    public static Direction findBestMove(Board theBoard, int depth, Evaluator evaluator) throws CloneNotSupportedException {
+        Board board = searchBoard(theBoard, evaluator);
+        SearchContext context = new SearchContext(depth, (evaluator==DEFAULT_EVALUATOR)?TRANSPOSITION_TABLES.get():null);
+        context.transpositionTables = (evaluator==DEFAULT_EVALUATOR)?TRANSPOSITION_TABLES:null;
+        context.evaluator = evaluator;
+        context.generation = SEARCH_GENERATIONS.incrementAndGet();
+        
+        alphabeta(board, depth, Player.USER, context);
+        
+        return context.bestDirection;
+    }
+    
+    /**
+     * Method that finds the best next move, with the depth chosen by the
+     * policy from the state of the board.
+     * 
+     * @param theBoard
+     * @param depthPolicy
+     * @return
+     * @throws CloneNotSupportedException 
+     */
+    public static Direction findBestMove(Board theBoard, DepthPolicy depthPolicy) throws CloneNotSupportedException {
+        return findBestMove(theBoard, depthPolicy.chooseDepth(theBoard));
+    }
+    
+    /**
+     * Method that finds the best next move, searching the moves of the root
+     * concurrently on the given pool. The result is the same as the one of
+     * findBestMove(Board, int).
+     * 
+     * @param theBoard
+     * @param depth
+     * @param pool
+     * @return
+     * @throws CloneNotSupportedException 
+     */
+    public static Direction findBestMove(Board theBoard, int depth, ForkJoinPool pool) throws CloneNotSupportedException {
+        return findBestMove(theBoard, depth, pool, NO_CHANCE_FORKING);
+    }
+    
+    /**
+     * Method that finds the best next move, searching the moves of the root
+     * concurrently on the given pool. Chance nodes with a remaining depth of
+     * at least forkDepth also search their children as separate tasks, which
+     * balances the work when one move dominates. The result is the same as
+     * the one of findBestMove(Board, int).
+     * 
+     * @param theBoard
+     * @param depth
+     * @param pool
+     * @param forkDepth the minimum remaining depth of a forking chance node, or NO_CHANCE_FORKING
+     * @return
+     * @throws CloneNotSupportedException 
+     */
+    public static Direction findBestMove(Board theBoard, int depth, ForkJoinPool pool, int forkDepth) throws CloneNotSupportedException {
+        return pool.invoke(new RootSearchTask(searchBoard(theBoard, DEFAULT_EVALUATOR), depth, forkDepth, SEARCH_GENERATIONS.incrementAndGet()));
+    }
+    
+    /**
+     * Method that finds the best next move with the Lazy SMP parallel search.
+     * The calling thread searches the root while one helper per thread of the
+     * pool searches the same root with a different move order, half of them
+     * one level deeper. All the threads share a lock-free transposition
+     * table, so the helpers fill it with scores which the main search reads
+     * instead of searching them again. The helpers are stopped as soon as the
+     * main search completes and its move is returned.
+     * 
+     * @param theBoard
+     * @param depth
+     * @param pool
+     * @return
+     * @throws CloneNotSupportedException 
+     */
+    public static Direction findBestMoveLazySmp(Board theBoard, int depth, ForkJoinPool pool) throws CloneNotSupportedException {
+        SearchScratch[] helperScratches = new SearchScratch[pool.getParallelism()];
+        for(int k=0;k<helperScratches.length;++k) {
+            helperScratches[k] = new SearchScratch(DEFAULT_EVALUATOR);
+        }
+        return searchLazySmp(theBoard, new SearchScratch(DEFAULT_EVALUATOR), helperScratches, depth, pool, DEFAULT_EVALUATOR, SharedTableHolder.TABLE);
+    }
+    
+    /**
+     * Searches a board with the given evaluator and transposition table, on
+     * the scratch which the caller keeps from one search to the next.
+     * 
+     * @param theBoard
+     * @param scratch the scratch of the calling thread, prepared by the evaluator
+     * @param depth
+     * @param evaluator
+     * @param transpositionTable the table, or null
+     * @return
+     * @throws CloneNotSupportedException 
+     */
+    static Direction search(Board theBoard, SearchScratch scratch, int depth, Evaluator evaluator, TranspositionTable transpositionTable) throws CloneNotSupportedException {
+        Board board = scratch.reset(theBoard, depth);
+        SearchContext context = new SearchContext(depth, transpositionTable, DEFAULT_MIN_PROBABILITY, scratch.getAfterstates(), scratch.getPoints());
+        context.evaluator = evaluator;
+        context.generation = SEARCH_GENERATIONS.incrementAndGet();
+        
+        alphabeta(board, depth, Player.USER, context);
+        
+        return context.bestDirection;
+    }
+    
+    /**
+     * Searches a board with the Lazy SMP parallel search, with the given
+     * evaluator and a transposition table shared by all the threads. The
+     * calling thread and the helpers search on scratches which the caller
+     * keeps from one search to the next.
+     * 
+     * @param theBoard
+     * @param scratch the scratch of the calling thread, prepared by the evaluator
+     * @param helperScratches the scratches of the helpers, one per thread of the pool
+     * @param depth
+     * @param pool the pool of the helpers
+     * @param evaluator
+     * @param transpositionTable the shared table
+     * @return
+     * @throws CloneNotSupportedException 
+     */
+    static Direction searchLazySmp(Board theBoard, SearchScratch scratch, SearchScratch[] helperScratches, int depth, ForkJoinPool pool, Evaluator evaluator, TranspositionTable transpositionTable) throws CloneNotSupportedException {
+        int generation = SEARCH_GENERATIONS.incrementAndGet();
+        AtomicBoolean stop = new AtomicBoolean(false);
+        
+        List<HelperSearchTask> helpers = new ArrayList<>();
+        for(int k=1;k<=helperScratches.length;++k) {
+            SearchScratch helperScratch = helperScratches[k-1];
+            helperScratch.reset(theBoard, depth+1);
+            HelperSearchTask helper = new HelperSearchTask(helperScratch, depth+(k&1), k%DIRECTIONS.length, transpositionTable, evaluator, generation, stop);
+            pool.execute(helper);
+            helpers.add(helper);
+        }
+        
+        Board board = scratch.reset(theBoard, depth);
+        SearchContext context = new SearchContext(depth, transpositionTable, DEFAULT_MIN_PROBABILITY, scratch.getAfterstates(), scratch.getPoints());
+        context.evaluator = evaluator;
+        context.generation = generation;
+        try {
+            alphabeta(board, depth, Player.USER, context);
+        }
+        finally {
+            stop.set(true);
+            for(HelperSearchTask helper : helpers) {
+                helper.quietlyJoin();
+            }
+        }
+        
+        return context.bestDirection;
+    }
+    
+    /**
+     * Method that finds the best next move within a time budget. It searches
+     * with increasing depth until the time runs out and returns the move of
+     * the deepest search which completed. The search of depth 1 always
+     * completes, so the method returns a move even for very small budgets.
+     * 
+     * @param theBoard
+     * @param timeBudget
+     * @param unit
+     * @return
+     * @throws CloneNotSupportedException 
+     */
+    public static Direction findBestMove(Board theBoard, long timeBudget, TimeUnit unit) throws CloneNotSupportedException {
+        long deadline = System.nanoTime()+unit.toNanos(timeBudget);
+        Board board = searchBoard(theBoard, DEFAULT_EVALUATOR);
+        TranspositionTable transpositionTable = TRANSPOSITION_TABLES.get();
+        int generation = SEARCH_GENERATIONS.incrementAndGet();
+        
+        Direction bestDirection = null;
+        for(int depth=1;depth<=MAX_ITERATIVE_DEPTH;++depth) {
+            SearchContext context = new SearchContext(depth, transpositionTable);
+            context.transpositionTables = TRANSPOSITION_TABLES;
+            context.generation = generation;
+            if(depth>1) {
+                context.timed = true;
+                context.deadline = deadline;
+            }
+            
+            alphabeta(board, depth, Player.USER, context);
+            
+            if(context.aborted) {
+                break;
+            }
+            bestDirection = context.bestDirection;
+            if(bestDirection==null || System.nanoTime()-deadline>=0) {
+                break; //the game is over or there is no time for a deeper search
+            }
+        }
+        
+        return bestDirection;
+    }
+    
+    /**
+     * Searches the children of a chance node of the alphabeta search as
+     * separate tasks. The children and their weights are the same as in the
+     * sequential chance node.
+     * 
+     * @param theBoard
+     * @param depth
+     * @param context
+     * @return
+     * @throws CloneNotSupportedException 
+     */
+    private static int forkChanceNode(Board theBoard, int depth, SearchContext context) throws CloneNotSupportedException {
+        int moves = theBoard.getEmptyCellMask();
+        List<SubtreeTask> tasks = new ArrayList<>();
+        int[] weights = new int[MAX_CHANCE_BRANCHES];
+        
+        for(int value : POSSIBLE_VALUES) {
+            for(int cells=moves;cells!=0 && tasks.size()<MAX_CHANCE_BRANCHES;cells&=cells-1) {
+                int cellId = Integer.numberOfTrailingZeros(cells);
+                
+                Board newBoard = searchBoard(theBoard, context.evaluator);
+                newBoard.setEmptyCell(cellId/Board.BOARD_SIZE, cellId%Board.BOARD_SIZE, value);
+                weights[tasks.size()] = (value==2)?PROBABILITY_OF_2:10-PROBABILITY_OF_2;
+                tasks.add(new SubtreeTask(newBoard, depth-1, Player.USER, context));
+            }
+        }
+        ForkJoinTask.invokeAll(tasks);
+        
+        int scoreSum = 0;
+        for(int k=0;k<tasks.size();++k) {
+            scoreSum += weights[k]*tasks.get(k).join();
+        }
+        return scoreSum / (theBoard.getNumberOfEmptyCells() * 10);
+    }
+    
+    /**
+     * Method that finds the best next move with the expectimax algorithm. The
+     * new random cells are weighted by their real probabilities and positions
+     * reached with a probability below minProbability are evaluated without
+     * being expanded further.
+     * 
+     * @param theBoard
+     * @param depth
+     * @param minProbability
+     * @return
+     * @throws CloneNotSupportedException 
+     */
+    public static Direction findBestMoveExpectimax(Board theBoard, int depth, double minProbability) throws CloneNotSupportedException {
+        Board board = searchBoard(theBoard, DEFAULT_EVALUATOR);
+        SearchContext context = new SearchContext(depth, null, minProbability);
+        
+        expectimax(board, depth, Player.USER, 1.0, context);
         
+        return context.bestDirection;
+    }
+    
+    /**
+     * Finds the best move by using the Minimax algorithm. The moves are made
+     * and taken back on theBoard, which is unchanged when the method returns.
+     * The best direction at the root is stored in the context.
+     * 
+     * @param theBoard
+     * @param depth
+     * @param player
+     * @param context
+     * @return
+     * @throws CloneNotSupportedException 
+     */
+    private static int minimax(Board theBoard, int depth, Player player, SearchContext context) throws CloneNotSupportedException {
         Direction bestDirection = null;
         int bestScore;
         
         if(depth==0 || theBoard.isGameTerminated()) {
-            bestScore=heuristicScore(theBoard.getScore(),theBoard.getNumberOfEmptyCells(),calculateClusteringScore(theBoard.getBoardArray()),calculateCornerScoreWrapper(theBoard));
+            bestScore=context.evaluator.evaluate(theBoard);
         }
         else {
             if(player == Player.USER) {
                 bestScore = Integer.MIN_VALUE;
 
-                for(Direction direction : Direction.values()) {
-                    Board newBoard = (Board) theBoard.clone();
-
-                    int points=newBoard.move(direction);
-                    
-                    if(points==0 && newBoard.isEqual(theBoard.getBoardArray(), newBoard.getBoardArray())) {
+                long[] afterstates = context.afterstates[depth];
+                int[] points = context.points[depth];
+                int legalMoves = theBoard.getAfterstates(afterstates, points);
+                for(Direction direction : DIRECTIONS) {
+                    int code = direction.getCode();
+                    if((legalMoves & (1<<code))==0) {
                     	continue;
                     }
+                    
+                    long previousBoard = theBoard.getPackedBoard();
+                    theBoard.setAfterstate(afterstates[code], points[code]);
+                    int currentScore = minimax(theBoard, depth-1, Player.COMPUTER, context);
+                    theBoard.undoMove(previousBoard, points[code]);
 
-                    Map<String, Object> currentResult = minimax(newBoard, depth-1, Player.COMPUTER);
-                    int currentScore=((Number)currentResult.get("Score")).intValue();
                     if(currentScore>bestScore) { //maximize score
                         bestScore=currentScore;
                         bestDirection=direction;
@@ -102,24 +951,22 @@ public class AIsolver {
             else {
                 bestScore = Integer.MAX_VALUE;
 
-                List<Integer> moves = theBoard.getEmptyCellIds();
-                if(moves.isEmpty()) {
+                int moves = theBoard.getEmptyCellMask();
+                if(moves==0) {
                     bestScore=0;
                 }
-                int[] possibleValues = {2, 4};
 
                 int i,j;
-                int[][] boardArray;
-                for(Integer cellId : moves) {
+                for(int cells=moves;cells!=0;cells&=cells-1) {
+                    int cellId = Integer.numberOfTrailingZeros(cells);
                     i = cellId/Board.BOARD_SIZE;
                     j = cellId%Board.BOARD_SIZE;
 
-                    for(int value : possibleValues) {
-                        Board newBoard = (Board) theBoard.clone();
-                        newBoard.setEmptyCell(i, j, value);
+                    for(int value : POSSIBLE_VALUES) {
+                        theBoard.setEmptyCell(i, j, value);
+                        int currentScore = minimax(theBoard, depth-1, Player.USER, context);
+                        theBoard.clearCell(i, j);
 
-                        Map<String, Object> currentResult = minimax(newBoard, depth-1, Player.USER);
-                        int currentScore=((Number)currentResult.get("Score")).intValue();
                         if(currentScore<bestScore) { //minimize best score
                             bestScore=currentScore;
                         }
@@ -128,30 +975,60 @@ public class AIsolver {
             }
         }
         
-        result.put("Score", bestScore);
-        result.put("Direction", bestDirection);
+        if(depth==context.rootDepth) {
+            context.bestDirection = bestDirection;
+        }
         
-        return result;
+        return bestScore;
     }
     
     /**
-     * Finds the best move bay using the Alpha-Beta pruning algorithm.
+     * Finds the best move bay using the Alpha-Beta pruning algorithm. The moves
+     * are made and taken back on theBoard, which is unchanged when the method
+     * returns. The best direction at the root is stored in the context.
      * 
      * @param theBoard
      * @param depth
      * @param alpha
      * @param beta
      * @param player
+     * @param context
      * @return
      * @throws CloneNotSupportedException 
      */
-    private static Map<String, Object> alphabeta(Board theBoard, int depth, Player player) throws CloneNotSupportedException {
-        Map<String, Object> result = new HashMap<>();
+    private static int alphabeta(Board theBoard, int depth, Player player, SearchContext context) throws CloneNotSupportedException {
+        if(context.isTimeUp()) {
+            return 0; //the score is discarded by the caller
+        }
+        
+        //the scores of positions reached again are read from the table, except at the root which needs the direction
+        boolean cached = depth<context.rootDepth && context.transpositionTable!=null;
+        if(cached) {
+            int cachedScore = context.transpositionTable.probe(theBoard, depth, player, context.generation);
+            if(cachedScore!=TranspositionTable.MISS) {
+                return cachedScore;
+            }
+        }
         
         Direction bestDirection = null;
         int bestScore;
         
-        if(theBoard.isGameTerminated()) {
+        //the afterstates of the user are shared between the termination check and the expansion
+        long[] afterstates = null;
+        int[] points = null;
+        int legalMoves = 0;
+        boolean terminated;
+        if(player == Player.USER) {
+            afterstates = context.afterstates[depth];
+            points = context.points[depth];
+            legalMoves = theBoard.getAfterstates(afterstates, points);
+            terminated = theBoard.hasWon() || legalMoves==0;
+        }
+        else {
+            terminated = theBoard.isGameTerminated();
+        }
+        
+        if(terminated) {
             if(theBoard.hasWon()) {
                 bestScore=4096*100; //highest possible score - using MAX_VALUE would cause overflow problems
             }
@@ -160,22 +1037,22 @@ public class AIsolver {
             }
         }
         else if(depth==0) {
-            bestScore=heuristicScore(theBoard.getScore(),theBoard.getNumberOfEmptyCells(),calculateClusteringScore(theBoard.getBoardArray()),calculateCornerScoreWrapper(theBoard));
+            bestScore=context.evaluator.evaluate(theBoard);
         }
         else {
         	bestScore = 0;
             if(player == Player.USER) {
-                for(Direction direction : Direction.values()) {
-                    Board newBoard = (Board) theBoard.clone();
-
-                    int points=newBoard.move(direction);
-                    
-                    if(points==0 && newBoard.isEqual(theBoard.getBoardArray(), newBoard.getBoardArray())) {
+                for(int k=0;k<DIRECTIONS.length;++k) {
+                    Direction direction = DIRECTIONS[(k+context.moveOrder)%DIRECTIONS.length];
+                    int code = direction.getCode();
+                    if((legalMoves & (1<<code))==0) {
                     	continue;
                     }
                     
-                    Map<String, Object> currentResult = alphabeta(newBoard, depth-1, Player.COMPUTER);
-                    int currentScore=((Number)currentResult.get("Score")).intValue();
+                    long previousBoard = theBoard.getPackedBoard();
+                    theBoard.setAfterstate(afterstates[code], points[code]);
+                    int currentScore = alphabeta(theBoard, depth-1, Player.COMPUTER, context);
+                    theBoard.undoMove(previousBoard, points[code]);
                                         
                     if(currentScore>=bestScore) { //maximize score
                         bestScore=currentScore;
@@ -183,28 +1060,30 @@ public class AIsolver {
                     }
                 }
             }
+            else if(context.forkDepth!=NO_CHANCE_FORKING && depth>=context.forkDepth && ForkJoinTask.inForkJoinPool()) {
+                bestScore = forkChanceNode(theBoard, depth, context);
+            }
             else {
-                List<Integer> moves = theBoard.getEmptyCellIds();
-                int[] possibleValues = {2, 4};
+                int moves = theBoard.getEmptyCellMask();
                 /*Only consider maxBranches randon new cells.  Start with 2's, top to bottom, left to right.
                  * Note that this would cause problems if we allowed the AI to use any corner, and not just top left.
                 */
-                int maxBranches = 16; 
+                int maxBranches = MAX_CHANCE_BRANCHES; 
                 int scoreSum=0;
                 
                 int branchCnt=0;
-                for(int value : possibleValues) {
+                for(int value : POSSIBLE_VALUES) {
                     
-                	for(Integer cellId : moves) {
-                                       	
+                	for(int cells=moves;cells!=0;cells&=cells-1) {
+                        int cellId = Integer.numberOfTrailingZeros(cells);
+                        
                         int i = cellId/Board.BOARD_SIZE;
                         int j = cellId%Board.BOARD_SIZE;
                         
-                        Board newBoard = (Board) theBoard.clone();
-                        newBoard.setEmptyCell(i, j, value);
+                        theBoard.setEmptyCell(i, j, value);
+                        int currentScore = alphabeta(theBoard, depth-1, Player.USER, context);
+                        theBoard.clearCell(i, j);
 
-                        Map<String, Object> currentResult = alphabeta(newBoard, depth-1, Player.USER);
-                        int currentScore=((Number)currentResult.get("Score")).intValue();
                         if(value == 2){
                         	scoreSum += 9*currentScore;
                         } else {
@@ -219,143 +1098,109 @@ public class AIsolver {
             }
         }
         
-        result.put("Score", bestScore);
-        result.put("Direction", bestDirection);
+        if(cached && !context.aborted) {
+            context.transpositionTable.store(theBoard, depth, player, context.generation, bestScore);
+        }
         
-        return result;
-    }
-    
-    /**
-     * Estimates a heuristic score by taking into account the real score, the
-     * number of empty cells and the clustering score of the board.
-     * 
-     * @param actualScore
-     * @param numberOfEmptyCells
-     * @param clusteringScore
-     * @return 
-     */
-    private static int heuristicScore(int actualScore, int numberOfEmptyCells, int clusteringScore, int cornerScore) {
-        int score = (int) (actualScore-300/(numberOfEmptyCells+1) - clusteringScore + 4*cornerScore);
-        return Math.max(score, Math.min(actualScore, 1));
-    }
-    
-    private static int calculateCornerScoreWrapper(Board board){
-    	return calculateCornerScore(board.getBoardArray());
-    	
-    	/* Letting the AI solve using any corner is definitely a better idea - I just couldn't get it to work right.
-    	 * My guess is that the error is not a simple bug, but complex implications of the corner scoring.
-    	 *   
-    	 * Consider the following board:
-    	 * 4  1024  512  256
-    	 * 2     0    0    0
-    	 * 0     0    0    0
-    	 * 0     0    0    0
-    	 * 
-    	 * The correct strategy is (probably) to accept the "lost space" in the upper left corner and go for a second row of
-    	 * 16   32   64  128
-    	 * 
-    	 * But the solve any corner metric encourages a right column of 256, 128, 64, 32 etc., which is probably even worse
-    	 * than no corner heuristic at all.
-    	 * 
-    	 * It's probably more important to first add code for "it's okay if you lose a corner - go ahead and try to win
-    	 * with a missing square" before allowing the target corner to change.
-    	 *  
-    	*/
-    	
-    	/*int score = 0;
-    	for(int j=0; j<2; j++){
-    		for(int i=0; i<4; i++){
-    			score = Math.max(score, calculateCornerScore(board.getBoardArray()));
-    			board.rotateLeft();
-    		}
-    	
-    		board.flip();
-    	}
-    	
-    	return score;*/
-    }
-    
-    private static int calculateCornerScore(int[][] boardArray){
-    	//return 0;
-    	int cornerScore = 0;
-    	int limit = 2048*8;
-    	for(int i=0; i<4; i++){
-    		if(boardArray[0][i] <= limit){
-    			cornerScore += boardArray[0][i];
-    			limit = boardArray[0][i];
-    		} else {
-    			return cornerScore;
-    		}
-    	}
-    	
-    	for(int i=3; i>=0; i--){
-    		if(boardArray[1][i] <= limit){
-    			cornerScore += boardArray[1][i];
-    			limit = boardArray[1][i];
-    		} else {
-    			return cornerScore;
-    		}
-    	}
-    	
-    	for(int i=0; i<4; i++){
-    		if(boardArray[2][i] <= limit){
-    			cornerScore += boardArray[2][i];
-    			limit = boardArray[2][i];
-    		} else {
-    			return cornerScore;
-    		}
-    	}
-    	
-    	return cornerScore;
+        if(depth==context.rootDepth) {
+            context.bestDirection = bestDirection;
+        }
+        
+        return bestScore;
     }
     
     /**
-     * Calculates a heuristic variance-like score that measures how clustered the
-     * board is.
+     * Finds the best move by using the Expectimax algorithm. The score of a
+     * chance node is the average of its children, where a new 2 is 9 times
+     * more likely than a new 4. A position is treated as a leaf when the
+     * probability of reaching it drops below the minimum probability of the
+     * context. The transposition table is not used, because the score of a
+     * position depends on the probability it was reached with.
      * 
-     * @param boardArray
-     * @return 
+     * @param theBoard
+     * @param depth
+     * @param player
+     * @param probability
+     * @param context
+     * @return
+     * @throws CloneNotSupportedException 
      */
-    private static int calculateClusteringScore(int[][] boardArray) {
-        int clusteringScore=0;
+    private static int expectimax(Board theBoard, int depth, Player player, double probability, SearchContext context) throws CloneNotSupportedException {
+        Direction bestDirection = null;
+        int bestScore;
         
-        int[] neighbors = {-1,0,1};
+        long[] afterstates = null;
+        int[] points = null;
+        int legalMoves = 0;
+        boolean terminated;
+        if(player == Player.USER) {
+            afterstates = context.afterstates[depth];
+            points = context.points[depth];
+            legalMoves = theBoard.getAfterstates(afterstates, points);
+            terminated = theBoard.hasWon() || legalMoves==0;
+        }
+        else {
+            terminated = theBoard.isGameTerminated();
+        }
         
-        for(int i=0;i<boardArray.length;++i) {
-            for(int j=0;j<boardArray.length;++j) {
-                if(boardArray[i][j]==0) {
-                    continue; //ignore empty cells
+        if(terminated) {
+            if(theBoard.hasWon()) {
+                bestScore=4096*100; //highest possible score - using MAX_VALUE would cause overflow problems
+            }
+            else {
+                bestScore=0;
+            }
+        }
+        else if(depth==0 || (probability<context.minProbability && depth<context.rootDepth)) {
+            bestScore=context.evaluator.evaluate(theBoard);
+        }
+        else if(player == Player.USER) {
+            bestScore = 0;
+            for(Direction direction : DIRECTIONS) {
+                int code = direction.getCode();
+                if((legalMoves & (1<<code))==0) {
+                    continue;
                 }
                 
-                //clusteringScore-=boardArray[i][j];
+                long previousBoard = theBoard.getPackedBoard();
+                theBoard.setAfterstate(afterstates[code], points[code]);
+                int currentScore = expectimax(theBoard, depth-1, Player.COMPUTER, probability, context);
+                theBoard.undoMove(previousBoard, points[code]);
                 
-                //for every pixel find the distance from each neightbors
-                int numOfNeighbors=0;
-                int sum=0;
-                for(int k : neighbors) {
-                    int x=i+k;
-                    if(x<0 || x>=boardArray.length) {
-                        continue;
-                    }
-                    for(int l : neighbors) {
-                        int y = j+l;
-                        if(y<0 || y>=boardArray.length) {
-                            continue;
-                        }
-                        
-                        if(boardArray[x][y]>0) {
-                            ++numOfNeighbors;
-                            sum+=Math.abs(boardArray[i][j]-boardArray[x][y]);
-                        }
-                        
-                    }
+                if(currentScore>=bestScore) { //maximize score
+                    bestScore=currentScore;
+                    bestDirection=direction;
                 }
+            }
+        }
+        else {
+            int moves = theBoard.getEmptyCellMask();
+            int numberOfEmptyCells = Integer.bitCount(moves);
+            double probabilityOf2 = probability*PROBABILITY_OF_2/(10.0*numberOfEmptyCells);
+            double probabilityOf4 = probability*(10-PROBABILITY_OF_2)/(10.0*numberOfEmptyCells);
+            
+            long scoreSum = 0;
+            for(int cells=moves;cells!=0;cells&=cells-1) {
+                int cellId = Integer.numberOfTrailingZeros(cells);
+                int i = cellId/Board.BOARD_SIZE;
+                int j = cellId%Board.BOARD_SIZE;
                 
-                clusteringScore+=sum/numOfNeighbors;
+                theBoard.setEmptyCell(i, j, 2);
+                scoreSum += PROBABILITY_OF_2*(long)expectimax(theBoard, depth-1, Player.USER, probabilityOf2, context);
+                theBoard.clearCell(i, j);
+                
+                theBoard.setEmptyCell(i, j, 4);
+                scoreSum += (10-PROBABILITY_OF_2)*(long)expectimax(theBoard, depth-1, Player.USER, probabilityOf4, context);
+                theBoard.clearCell(i, j);
             }
+            bestScore = (int)(scoreSum / (numberOfEmptyCells * 10));
+        }
+        
+        if(depth==context.rootDepth) {
+            context.bestDirection = bestDirection;
         }
         
-        return clusteringScore;
+        return bestScore;
     }
 
 }
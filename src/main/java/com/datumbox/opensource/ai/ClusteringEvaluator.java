@@ -0,0 +1,189 @@
+/* 
+ * Copyright (C) 2014 Vasilis Vryniotis <bbriniotis at datumbox.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.datumbox.opensource.ai;
+
+import com.datumbox.opensource.game.Board;
+import com.datumbox.opensource.game.Symmetry;
+
+/**
+ * The default evaluator. It combines the real score, the number of empty
+ * cells, a clustering score which penalizes neighbouring cells with different
+ * values and a corner score which rewards a snake of decreasing values
+ * starting from the top left corner, or optionally from any corner.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
+ */
+public class ClusteringEvaluator implements Evaluator {
+    
+    /**
+     * Whether the corner score is the best score of any corner instead of the
+     * top left one
+     */
+    private final boolean anyCorner;
+    
+    /**
+     * Constructor of the evaluator which scores the top left corner
+     */
+    public ClusteringEvaluator() {
+        this(false);
+    }
+    
+    /**
+     * Constructor
+     * 
+     * @param anyCorner whether the corner score is the best score of any of the 8 symmetries of the board
+     */
+    public ClusteringEvaluator(boolean anyCorner) {
+        this.anyCorner = anyCorner;
+    }
+    
+    /**
+     * The board is not prepared, because the evaluation reads only its cells.
+     * 
+     * @param board 
+     */
+    @Override
+    public void prepare(Board board) {
+    }
+    
+    /**
+     * Estimates the score of a position with the clustering heuristic.
+     * 
+     * @param board
+     * @return 
+     */
+    @Override
+    public int evaluate(Board board) {
+        long packedBoard = board.getPackedBoard();
+        return heuristicScore(board.getScore(),board.getNumberOfEmptyCells(),calculateClusteringScore(packedBoard),calculateCornerScoreWrapper(packedBoard));
+    }
+    
+    /**
+     * Estimates a heuristic score by taking into account the real score, the
+     * number of empty cells and the clustering score of the board.
+     * 
+     * @param actualScore
+     * @param numberOfEmptyCells
+     * @param clusteringScore
+     * @return 
+     */
+    private static int heuristicScore(int actualScore, int numberOfEmptyCells, int clusteringScore, int cornerScore) {
+        int score = (int) (actualScore-300/(numberOfEmptyCells+1) - clusteringScore + 4*cornerScore);
+        return Math.max(score, Math.min(actualScore, 1));
+    }
+    
+    /**
+     * Calculates the corner score of the top left corner, or the best one of
+     * any corner when anyCorner is set.
+     * 
+     * @param packedBoard
+     * @return 
+     */
+    private int calculateCornerScoreWrapper(long packedBoard){
+    	if(!anyCorner) {
+    		return calculateCornerScore(packedBoard);
+    	}
+    	
+    	/* Letting the AI solve using any corner is definitely a better idea - I just couldn't get it to work right.
+    	 * My guess is that the error is not a simple bug, but complex implications of the corner scoring.
+    	 *   
+    	 * Consider the following board:
+    	 * 4  1024  512  256
+    	 * 2     0    0    0
+    	 * 0     0    0    0
+    	 * 0     0    0    0
+    	 * 
+    	 * The correct strategy is (probably) to accept the "lost space" in the upper left corner and go for a second row of
+    	 * 16   32   64  128
+    	 * 
+    	 * But the solve any corner metric encourages a right column of 256, 128, 64, 32 etc., which is probably even worse
+    	 * than no corner heuristic at all.
+    	 * 
+    	 * It's probably more important to first add code for "it's okay if you lose a corner - go ahead and try to win
+    	 * with a missing square" before allowing the target corner to change.
+    	 *  
+    	*/
+    	
+    	int score = 0;
+    	for(int symmetry=0; symmetry<Symmetry.NUMBER_OF_SYMMETRIES; symmetry++){
+    		score = Math.max(score, calculateCornerScore(Symmetry.transform(packedBoard, symmetry)));
+    	}
+    	
+    	return score;
+    }
+    
+    /**
+     * Calculates the corner score of the snake starting from the top left
+     * corner, by looking up the rows in precomputed tables.
+     * 
+     * @param packedBoard
+     * @return 
+     */
+    private static int calculateCornerScore(long packedBoard){
+    	return HeuristicTables.cornerScore(packedBoard, 2048*8);
+    }
+    
+    /**
+     * Calculates a heuristic variance-like score that measures how clustered the
+     * board is. The cells are read from the packed board without copying it.
+     * 
+     * @param packedBoard
+     * @return 
+     */
+    private static int calculateClusteringScore(long packedBoard) {
+        int clusteringScore=0;
+        
+        int[] neighbors = {-1,0,1};
+        
+        for(int i=0;i<Board.BOARD_SIZE;++i) {
+            for(int j=0;j<Board.BOARD_SIZE;++j) {
+                int value = Board.getCellValue(packedBoard, i, j);
+                if(value==0) {
+                    continue; //ignore empty cells
+                }
+                
+                //for every pixel find the distance from each neightbors
+                int numOfNeighbors=0;
+                int sum=0;
+                for(int k : neighbors) {
+                    int x=i+k;
+                    if(x<0 || x>=Board.BOARD_SIZE) {
+                        continue;
+                    }
+                    for(int l : neighbors) {
+                        int y = j+l;
+                        if(y<0 || y>=Board.BOARD_SIZE) {
+                            continue;
+                        }
+                        
+                        int neighborValue = Board.getCellValue(packedBoard, x, y);
+                        if(neighborValue>0) {
+                            ++numOfNeighbors;
+                            sum+=Math.abs(value-neighborValue);
+                        }
+                        
+                    }
+                }
+                
+                clusteringScore+=sum/numOfNeighbors;
+            }
+        }
+        
+        return clusteringScore;
+    }
+
+}
@@ -0,0 +1,129 @@
+/* 
+ * Copyright (C) 2014 Vasilis Vryniotis <bbriniotis at datumbox.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.datumbox.opensource.ai;
+
+import com.datumbox.opensource.game.Board;
+import java.util.Arrays;
+
+/**
+ * Chooses the search depth from the state of the board. Open boards are
+ * searched shallow, because they have many branches and few risks, while
+ * crowded boards and boards with many different tiles are searched deeper.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
+ */
+public class DepthPolicy {
+    
+    /**
+     * The default policy: depth 3 with at least 8 empty cells, depth 5 with
+     * at least 3 and depth 7 otherwise, plus 2 with 10 or more different tiles.
+     * Late-game boards usually have both few empty cells and many different
+     * tiles, so they are searched at depth 7 to 9.
+     */
+    public static final DepthPolicy DEFAULT = new DepthPolicy(new int[]{8, 3, 0}, new int[]{3, 5, 7}, 10, 2);
+    
+    /**
+     * The minimum number of empty cells of every tier, in decreasing order
+     */
+    private final int[] minEmptyCells;
+    
+    /**
+     * The depth of every tier
+     */
+    private final int[] depths;
+    
+    /**
+     * The number of different tiles from which the depth is increased
+     */
+    private final int minDistinctTiles;
+    
+    /**
+     * The increase of the depth for boards with many different tiles
+     */
+    private final int distinctTilesBonus;
+    
+    /**
+     * Constructor. The tier of a board is the first one whose minimum number
+     * of empty cells it reaches, so the last tier should have a minimum of 0.
+     * The depths, with the bonus added, must be between 1 and the largest
+     * depth which the transposition tables can store.
+     * 
+     * @param minEmptyCells the minimum empty cells of every tier, in decreasing order
+     * @param depths the depth of every tier
+     * @param minDistinctTiles the different tiles from which the bonus is added
+     * @param distinctTilesBonus the depth added for boards with many different tiles
+     */
+    public DepthPolicy(int[] minEmptyCells, int[] depths, int minDistinctTiles, int distinctTilesBonus) {
+        if(minEmptyCells.length!=depths.length || depths.length==0) {
+            throw new IllegalArgumentException("Every tier needs a minimum number of empty cells and a depth.");
+        }
+        if(distinctTilesBonus<0) {
+            throw new IllegalArgumentException("The bonus of the different tiles can not be negative.");
+        }
+        for(int i=0;i<depths.length;++i) {
+            if(i>0 && minEmptyCells[i]>=minEmptyCells[i-1]) {
+                throw new IllegalArgumentException("The minimum empty cells of the tiers must be in decreasing order.");
+            }
+            if(depths[i]<1 || depths[i]>LocalTranspositionTable.MAX_DEPTH-distinctTilesBonus) {
+                throw new IllegalArgumentException("The depths of the tiers, with the bonus, must be between 1 and "+LocalTranspositionTable.MAX_DEPTH+".");
+            }
+        }
+        this.minEmptyCells = minEmptyCells.clone();
+        this.depths = depths.clone();
+        this.minDistinctTiles = minDistinctTiles;
+        this.distinctTilesBonus = distinctTilesBonus;
+    }
+    
+    /**
+     * Constructor of a policy which always uses the same depth
+     * 
+     * @param depth 
+     */
+    public DepthPolicy(int depth) {
+        this(new int[]{0}, new int[]{depth}, Integer.MAX_VALUE, 0);
+    }
+    
+    /**
+     * Chooses the depth of the search for a board
+     * 
+     * @param board
+     * @return 
+     */
+    public int chooseDepth(Board board) {
+        int numberOfEmptyCells = board.getNumberOfEmptyCells();
+        
+        int depth = depths[depths.length-1];
+        for(int i=0;i<minEmptyCells.length;++i) {
+            if(numberOfEmptyCells>=minEmptyCells[i]) {
+                depth = depths[i];
+                break;
+            }
+        }
+        
+        if(board.getNumberOfDistinctTiles()>=minDistinctTiles) {
+            depth += distinctTilesBonus;
+        }
+        
+        return depth;
+    }
+    
+    @Override
+    public String toString() {
+        return "DepthPolicy[minEmptyCells=" + Arrays.toString(minEmptyCells) + ", depths=" + Arrays.toString(depths) 
+                + ", minDistinctTiles=" + minDistinctTiles + ", distinctTilesBonus=" + distinctTilesBonus + "]";
+    }
+}
@@ -0,0 +1,46 @@
+/* 
+ * Copyright (C) 2014 Vasilis Vryniotis <bbriniotis at datumbox.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.datumbox.opensource.ai;
+
+import com.datumbox.opensource.game.Board;
+
+/**
+ * Heuristic evaluation of the leaves of the search. Implementations read the
+ * board through getPackedBoard() and Board.getCellValue() instead of copying
+ * it, and must be thread safe because the parallel searches share them.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
+ */
+public interface Evaluator {
+    
+    /**
+     * Prepares the private copy of the board of a search, before any of its
+     * positions is evaluated.
+     * 
+     * @param board 
+     */
+    public void prepare(Board board);
+    
+    /**
+     * Estimates the score of a position. Higher scores are better for the
+     * user and they should not be negative.
+     * 
+     * @param board
+     * @return 
+     */
+    public int evaluate(Board board);
+}
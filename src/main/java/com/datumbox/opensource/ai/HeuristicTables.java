@@ -0,0 +1,164 @@
+/* 
+ * Copyright (C) 2014 Vasilis Vryniotis <bbriniotis at datumbox.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.datumbox.opensource.ai;
+
+import com.datumbox.opensource.game.Board;
+
+/**
+ * Lookup tables with the heuristic contributions of every possible packed row,
+ * so that the evaluation of a board takes a few table lookups per row and
+ * column instead of a scan of its cells.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
+ */
+final class HeuristicTables {
+    
+    /**
+     * The number of possible rows
+     */
+    private static final int NUMBER_OF_ROWS = 1<<Board.ROW_BITS;
+    
+    /**
+     * The flag of the corner table set when the whole row is non increasing
+     */
+    static final int MONOTONE_ROW = 1<<30;
+    
+    /**
+     * The sum of the values of the longest non increasing prefix of the row,
+     * with the MONOTONE_ROW flag when the prefix is the whole row.
+     */
+    static final int[] ROW_CORNER = new int[NUMBER_OF_ROWS];
+    
+    /**
+     * The corner table entry of every row read from right to left
+     */
+    private static final int[] REVERSED_ROW_CORNER = new int[NUMBER_OF_ROWS];
+    
+    /**
+     * The sum of the differences between the values of the adjacent non empty
+     * cells of the row.
+     */
+    static final int[] ROW_SMOOTHNESS = new int[NUMBER_OF_ROWS];
+    
+    static {
+        for(int row=0;row<NUMBER_OF_ROWS;++row) {
+            ROW_CORNER[row] = cornerScore(row);
+            ROW_SMOOTHNESS[row] = smoothnessScore(row);
+        }
+        for(int row=0;row<NUMBER_OF_ROWS;++row) {
+            REVERSED_ROW_CORNER[row] = ROW_CORNER[(int)Board.mirrorRows(row)];
+        }
+    }
+    
+    /**
+     * Private constructor, the class only holds static tables
+     */
+    private HeuristicTables() {
+    }
+    
+    /**
+     * Calculates the corner score of a packed board, which is the sum of the
+     * values met while walking the first three rows as a snake from the top
+     * left corner for as long as the values do not increase.
+     * 
+     * @param packedBoard
+     * @param limit the maximum value of the top left corner
+     * @return 
+     */
+    static int cornerScore(long packedBoard, int limit) {
+        int cornerScore = 0;
+        for(int i=0;i<3;++i) {
+            int row = (int)(packedBoard>>>(Board.ROW_BITS*i)) & Board.ROW_MASK;
+            
+            //the snake walks the second row from right to left
+            boolean reversed = (i==1);
+            int first = reversed?Board.BOARD_SIZE-1:0;
+            if(Board.getCellValue(row, 0, first)>limit) {
+                return cornerScore;
+            }
+            
+            int entry = reversed?REVERSED_ROW_CORNER[row]:ROW_CORNER[row];
+            cornerScore += entry & ~MONOTONE_ROW;
+            if((entry & MONOTONE_ROW)==0) {
+                return cornerScore;
+            }
+            limit = Board.getCellValue(row, 0, Board.BOARD_SIZE-1-first);
+        }
+        
+        return cornerScore;
+    }
+    
+    /**
+     * Calculates the smoothness score of a packed board, which is the sum of
+     * the differences between the values of the adjacent non empty cells of
+     * its rows and columns.
+     * 
+     * @param packedBoard
+     * @return 
+     */
+    static int smoothnessScore(long packedBoard) {
+        long transposedBoard = Board.transpose(packedBoard);
+        
+        int smoothnessScore = 0;
+        for(int i=0;i<Board.BOARD_SIZE;++i) {
+            smoothnessScore += ROW_SMOOTHNESS[(int)(packedBoard>>>(Board.ROW_BITS*i)) & Board.ROW_MASK];
+            smoothnessScore += ROW_SMOOTHNESS[(int)(transposedBoard>>>(Board.ROW_BITS*i)) & Board.ROW_MASK];
+        }
+        
+        return smoothnessScore;
+    }
+    
+    /**
+     * Calculates the corner table entry of a packed row
+     * 
+     * @param row
+     * @return 
+     */
+    private static int cornerScore(int row) {
+        int cornerScore = 0;
+        int limit = Integer.MAX_VALUE;
+        for(int j=0;j<Board.BOARD_SIZE;++j) {
+            int value = Board.getCellValue(row, 0, j);
+            if(value>limit) {
+                return cornerScore;
+            }
+            cornerScore += value;
+            limit = value;
+        }
+        
+        return cornerScore | MONOTONE_ROW;
+    }
+    
+    /**
+     * Calculates the smoothness table entry of a packed row
+     * 
+     * @param row
+     * @return 
+     */
+    private static int smoothnessScore(int row) {
+        int smoothnessScore = 0;
+        for(int j=1;j<Board.BOARD_SIZE;++j) {
+            int previousValue = Board.getCellValue(row, 0, j-1);
+            int value = Board.getCellValue(row, 0, j);
+            if(previousValue>0 && value>0) {
+                smoothnessScore += Math.abs(value-previousValue);
+            }
+        }
+        
+        return smoothnessScore;
+    }
+}
@@ -0,0 +1,134 @@
+/* 
+ * Copyright (C) 2014 Vasilis Vryniotis <bbriniotis at datumbox.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.datumbox.opensource.ai;
+
+import com.datumbox.opensource.game.Board;
+
+/**
+ * Transposition table for a single thread. Every entry stores the full key of
+ * its position (packed board, game score, remaining depth and player), so a
+ * hit is never a false positive. When two positions of the same search fall in
+ * the same slot the one searched deeper is kept, while the entries of older
+ * searches are always replaced.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
+ */
+final class LocalTranspositionTable implements TranspositionTable {
+    
+    /**
+     * The largest remaining depth which depthKey can encode in a positive byte
+     */
+    static final int MAX_DEPTH = (Byte.MAX_VALUE-2)>>1;
+    
+    /**
+     * Mask of the slot index
+     */
+    private final int mask;
+    
+    /**
+     * The packed boards of the entries
+     */
+    private final long[] boards;
+    
+    /**
+     * The game scores of the entries
+     */
+    private final int[] gameScores;
+    
+    /**
+     * The search scores of the entries
+     */
+    private final int[] scores;
+    
+    /**
+     * The remaining depth and the player of the entries, 0 for empty slots
+     */
+    private final byte[] depths;
+    
+    /**
+     * The generations of the searches which stored or last read the entries.
+     * They are kept in full, so an old entry is never taken for one of the
+     * current search.
+     */
+    private final int[] generations;
+
+    
+    /**
+     * Constructor
+     * 
+     * @param sizeBits the table has 2^sizeBits entries
+     */
+    LocalTranspositionTable(int sizeBits) {
+        int size = 1<<sizeBits;
+        mask = size-1;
+        boards = new long[size];
+        gameScores = new int[size];
+        scores = new int[size];
+        depths = new byte[size];
+        generations = new int[size];
+    }
+    
+    @Override
+    public int probe(Board board, int depth, AIsolver.Player player, int generation) {
+        byte key = depthKey(depth, player);
+        int slot = slot(board, key);
+        if(depths[slot]==key && boards[slot]==board.getPackedBoard() && gameScores[slot]==board.getScore()) {
+            generations[slot] = generation; //the entry is still useful
+            return scores[slot];
+        }
+        return MISS;
+    }
+    
+    @Override
+    public void store(Board board, int depth, AIsolver.Player player, int generation, int score) {
+        byte key = depthKey(depth, player);
+        int slot = slot(board, key);
+        if(generations[slot]==generation && depths[slot]>key) { //depth-preferred replacement within a search
+            return;
+        }
+        depths[slot] = key;
+        generations[slot] = generation;
+        boards[slot] = board.getPackedBoard();
+        gameScores[slot] = board.getScore();
+        scores[slot] = score;
+    }
+    
+    /**
+     * Encodes the remaining depth and the player in a single positive byte,
+     * ordered by depth.
+     * 
+     * @param depth
+     * @param player
+     * @return 
+     */
+    static byte depthKey(int depth, AIsolver.Player player) {
+        return (byte)(((depth<<1) | player.ordinal())+1);
+    }
+    
+    /**
+     * Finds the slot of a position from its Zobrist hash, game score and
+     * depth.
+     * 
+     * @param board
+     * @param depthKey
+     * @return 
+     */
+    private int slot(Board board, byte depthKey) {
+        long hash = board.getHash() ^ ((board.getScore()*31L+depthKey)*0x9E3779B97F4A7C15L);
+        return (int)(hash ^ (hash>>>32)) & mask;
+    }
+}
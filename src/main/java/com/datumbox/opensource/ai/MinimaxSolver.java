@@ -0,0 +1,45 @@
+/* 
+ * Copyright (C) 2014 Vasilis Vryniotis <bbriniotis at datumbox.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.datumbox.opensource.ai;
+
+import com.datumbox.opensource.dataobjects.Direction;
+import com.datumbox.opensource.game.Board;
+
+/**
+ * A solver which assumes the worst case: the computer places the new cell
+ * which minimizes the score of the user. It plays safer and much slower than
+ * the default solver, because every new cell is searched without pruning.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
+ */
+public class MinimaxSolver implements Solver {
+    
+    /**
+     * The name of the solver
+     */
+    public static final String NAME = "minimax";
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public Direction findBestMove(Board theBoard, int depth) throws CloneNotSupportedException {
+        return AIsolver.findBestMoveMinimax(theBoard, depth);
+    }
+}
@@ -0,0 +1,62 @@
+/* 
+ * Copyright (C) 2014 Vasilis Vryniotis <bbriniotis at datumbox.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.datumbox.opensource.ai;
+
+import com.datumbox.opensource.game.Board;
+
+/**
+ * An evaluator built only from lookups in precomputed row tables. It replaces
+ * the clustering score of the default evaluator, which looks at the diagonal
+ * neighbours and can not be split into rows and columns, with the smoothness
+ * of the rows and the columns.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
+ */
+public class RowTableEvaluator implements Evaluator {
+    
+    /**
+     * The divisor of the smoothness score, which brings it to the scale of the
+     * clustering score
+     */
+    private static final int SMOOTHNESS_DIVISOR = 2;
+    
+    /**
+     * The board is not prepared, because the evaluation reads only its cells.
+     * 
+     * @param board 
+     */
+    @Override
+    public void prepare(Board board) {
+    }
+    
+    /**
+     * Estimates the score of a position from the real score, the number of
+     * empty cells, the smoothness and the corner score.
+     * 
+     * @param board
+     * @return 
+     */
+    @Override
+    public int evaluate(Board board) {
+        long packedBoard = board.getPackedBoard();
+        int smoothnessScore = HeuristicTables.smoothnessScore(packedBoard);
+        
+        int actualScore = board.getScore();
+        int score = actualScore-300/(board.getNumberOfEmptyCells()+1) - smoothnessScore/SMOOTHNESS_DIVISOR + 4*HeuristicTables.cornerScore(packedBoard, 2048*8);
+        return Math.max(score, Math.min(actualScore, 1));
+    }
+}
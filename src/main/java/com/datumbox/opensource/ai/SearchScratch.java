@@ -0,0 +1,98 @@
+/* 
+ * Copyright (C) 2014 Vasilis Vryniotis <bbriniotis at datumbox.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.datumbox.opensource.ai;
+
+import com.datumbox.opensource.game.Board;
+import com.datumbox.opensource.game.BoardState;
+
+/**
+ * The private board and the per-depth buffers of one searching thread, kept
+ * from one search to the next. The board is prepared by the evaluator once,
+ * when the scratch is created, and every search copies its root into it.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
+ */
+final class SearchScratch {
+    
+    /**
+     * The private board of the searches
+     */
+    private final Board board = new Board(new BoardState(0L, 0));
+    
+    /**
+     * The afterstates of the user, indexed by the remaining depth
+     */
+    private long[][] afterstates = new long[0][];
+    
+    /**
+     * The points of the afterstates, indexed by the remaining depth
+     */
+    private int[][] points = new int[0][];
+    
+    /**
+     * Constructor
+     * 
+     * @param evaluator the evaluator which prepares the board
+     */
+    SearchScratch(Evaluator evaluator) {
+        evaluator.prepare(board);
+    }
+    
+    /**
+     * Copies the root of a search into the private board and grows the
+     * buffers so that they fit a search of the given depth.
+     * 
+     * @param root
+     * @param depth
+     * @return the private board
+     */
+    Board reset(Board root, int depth) {
+        board.setState(root.getState());
+        if(afterstates.length<=depth) {
+            afterstates = new long[depth+1][4];
+            points = new int[depth+1][4];
+        }
+        return board;
+    }
+    
+    /**
+     * Getter for the private board
+     * 
+     * @return 
+     */
+    Board getBoard() {
+        return board;
+    }
+    
+    /**
+     * Getter for the buffer of the afterstates
+     * 
+     * @return 
+     */
+    long[][] getAfterstates() {
+        return afterstates;
+    }
+    
+    /**
+     * Getter for the buffer of the points
+     * 
+     * @return 
+     */
+    int[][] getPoints() {
+        return points;
+    }
+}
@@ -0,0 +1,125 @@
+/* 
+ * Copyright (C) 2014 Vasilis Vryniotis <bbriniotis at datumbox.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.datumbox.opensource.ai;
+
+import com.datumbox.opensource.game.Board;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Transposition table shared by many threads without locks. Every entry is
+ * two longs: the data (score, depth and generation) and the 64-bit key of the
+ * position XORed with the data. A reader accepts an entry only if the two
+ * words match the position, so an entry torn by concurrent writers is seen as
+ * a miss. Positions are identified by a 64-bit hash of their full key, so
+ * unlike LocalTranspositionTable a false positive is possible, with a
+ * probability of about 2^-64 per probe. The entries of older generations are
+ * always replaced, because the table lives as long as the process. Only the
+ * lowest 24 bits of the generation fit in the data, so an entry is taken for
+ * one of the current search only if no search stored or replaced it in the
+ * last 2^24 searches, and then it only keeps its slot for one more search.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
+ */
+final class SharedTranspositionTable implements TranspositionTable {
+    
+    /**
+     * Mask of the slot index
+     */
+    private final int mask;
+    
+    /**
+     * The entries, the data at even and the checked key at odd indexes
+     */
+    private final AtomicLongArray entries;
+    
+    /**
+     * Mask of the bits of the generation which are stored in the data
+     */
+    private static final int GENERATION_MASK = (1<<24)-1;
+
+    
+    /**
+     * Constructor
+     * 
+     * @param sizeBits the table has 2^sizeBits entries
+     */
+    SharedTranspositionTable(int sizeBits) {
+        int size = 1<<sizeBits;
+        mask = size-1;
+        entries = new AtomicLongArray(2*size);
+    }
+    
+    @Override
+    public int probe(Board board, int depth, AIsolver.Player player, int generation) {
+        byte depthKey = LocalTranspositionTable.depthKey(depth, player);
+        long key = key(board, depthKey);
+        int slot = (int)key & mask;
+        
+        long data = entries.get(2*slot);
+        long checkedKey = entries.get(2*slot+1);
+        if(data!=0L && (checkedKey^data)==key) {
+            return (int)data;
+        }
+        return MISS;
+    }
+    
+    @Override
+    public void store(Board board, int depth, AIsolver.Player player, int generation, int score) {
+        byte depthKey = LocalTranspositionTable.depthKey(depth, player);
+        long key = key(board, depthKey);
+        int slot = (int)key & mask;
+        
+        int currentGeneration = generation & GENERATION_MASK;
+        long storedData = entries.get(2*slot);
+        if((int)(storedData>>>40)==currentGeneration && (byte)(storedData>>>32)>depthKey) { //depth-preferred replacement within a search
+            return;
+        }
+        long data = (((long)currentGeneration)<<40) | (((long)depthKey)<<32) | (score & 0xFFFFFFFFL);
+        entries.set(2*slot, data);
+        entries.set(2*slot+1, key^data);
+    }
+    
+    /**
+     * Hashes the full key of a position: the packed board, the game score,
+     * the remaining depth and the player.
+     * 
+     * @param board
+     * @param depthKey
+     * @return 
+     */
+    private static long key(Board board, byte depthKey) {
+        long hash = mix(board.getPackedBoard());
+        hash = mix(hash ^ ((((long)board.getScore())<<8) | depthKey));
+        return hash;
+    }
+    
+    /**
+     * The finalizer of MurmurHash3, which spreads every input bit over all
+     * the output bits
+     * 
+     * @param x
+     * @return 
+     */
+    private static long mix(long x) {
+        x ^= x>>>33;
+        x *= 0xFF51AFD7ED558CCDL;
+        x ^= x>>>33;
+        x *= 0xC4CEB9FE1A85EC53L;
+        x ^= x>>>33;
+        return x;
+    }
+}
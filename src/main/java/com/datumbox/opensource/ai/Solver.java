@@ -0,0 +1,50 @@
+/* 
+ * Copyright (C) 2014 Vasilis Vryniotis <bbriniotis at datumbox.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.datumbox.opensource.ai;
+
+import com.datumbox.opensource.dataobjects.Direction;
+import com.datumbox.opensource.game.Board;
+
+/**
+ * Service provider interface of the search algorithms. The implementations are
+ * discovered with the ServiceLoader, so they are registered in the file
+ * META-INF/services/com.datumbox.opensource.ai.Solver and must have a public
+ * constructor without arguments. They are looked up by name with
+ * AIsolver.getSolver().
+ * 
+ * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
+ */
+public interface Solver {
+    
+    /**
+     * Returns the unique name by which the solver is selected
+     * 
+     * @return 
+     */
+    public String getName();
+    
+    /**
+     * Finds the best next move with a search of the given depth. It returns
+     * null when there is no move to make.
+     * 
+     * @param theBoard
+     * @param depth
+     * @return
+     * @throws CloneNotSupportedException 
+     */
+    public Direction findBestMove(Board theBoard, int depth) throws CloneNotSupportedException;
+}
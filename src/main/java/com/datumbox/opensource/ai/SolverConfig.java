@@ -0,0 +1,139 @@
+/* 
+ * Copyright (C) 2014 Vasilis Vryniotis <bbriniotis at datumbox.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.datumbox.opensource.ai;
+
+/**
+ * The configuration of a SolverEngine. The engine copies the configuration
+ * when it is constructed, so changing it afterwards does not affect the engine.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
+ */
+public class SolverConfig {
+    
+    /**
+     * The largest supported log2 of the number of entries of a transposition table
+     */
+    private static final int MAX_TRANSPOSITION_TABLE_SIZE_BITS = 28;
+    
+    /**
+     * The policy which chooses the depth of the searches
+     */
+    private DepthPolicy depthPolicy = DepthPolicy.DEFAULT;
+    
+    /**
+     * The evaluator of the leaves
+     */
+    private Evaluator evaluator = AIsolver.DEFAULT_EVALUATOR;
+    
+    /**
+     * The log2 of the number of entries of the transposition tables
+     */
+    private int transpositionTableSizeBits = 18;
+    
+    /**
+     * The number of threads which search a position
+     */
+    private int parallelism = 1;
+    
+    /**
+     * Getter for the depth policy
+     * 
+     * @return 
+     */
+    public DepthPolicy getDepthPolicy() {
+        return depthPolicy;
+    }
+    
+    /**
+     * Setter for the depth policy
+     * 
+     * @param depthPolicy 
+     */
+    public void setDepthPolicy(DepthPolicy depthPolicy) {
+        if(depthPolicy==null) {
+            throw new IllegalArgumentException("The depth policy can not be null.");
+        }
+        this.depthPolicy = depthPolicy;
+    }
+    
+    /**
+     * Getter for the evaluator
+     * 
+     * @return 
+     */
+    public Evaluator getEvaluator() {
+        return evaluator;
+    }
+    
+    /**
+     * Setter for the evaluator
+     * 
+     * @param evaluator 
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        if(evaluator==null) {
+            throw new IllegalArgumentException("The evaluator can not be null.");
+        }
+        this.evaluator = evaluator;
+    }
+    
+    /**
+     * Getter for the log2 of the number of entries of the transposition tables
+     * 
+     * @return 
+     */
+    public int getTranspositionTableSizeBits() {
+        return transpositionTableSizeBits;
+    }
+    
+    /**
+     * Setter for the log2 of the number of entries of the transposition
+     * tables. A sequential engine has one table per calling thread, while a
+     * parallel engine shares a single table between its threads.
+     * 
+     * @param transpositionTableSizeBits 
+     */
+    public void setTranspositionTableSizeBits(int transpositionTableSizeBits) {
+        if(transpositionTableSizeBits<1 || transpositionTableSizeBits>MAX_TRANSPOSITION_TABLE_SIZE_BITS) {
+            throw new IllegalArgumentException("The size bits of the transposition tables must be between 1 and " + MAX_TRANSPOSITION_TABLE_SIZE_BITS + ".");
+        }
+        this.transpositionTableSizeBits = transpositionTableSizeBits;
+    }
+    
+    /**
+     * Getter for the number of threads which search a position
+     * 
+     * @return 
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+    
+    /**
+     * Setter for the number of threads which search a position. With 1 the
+     * calling thread searches alone, otherwise it is helped by a pool of
+     * parallelism-1 threads with the Lazy SMP search.
+     * 
+     * @param parallelism 
+     */
+    public void setParallelism(int parallelism) {
+        if(parallelism<1) {
+            throw new IllegalArgumentException("The parallelism must be at least 1.");
+        }
+        this.parallelism = parallelism;
+    }
+}
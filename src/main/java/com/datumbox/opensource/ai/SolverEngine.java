@@ -0,0 +1,174 @@
+/* 
+ * Copyright (C) 2014 Vasilis Vryniotis <bbriniotis at datumbox.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.datumbox.opensource.ai;
+
+import com.datumbox.opensource.dataobjects.Direction;
+import com.datumbox.opensource.game.Board;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A solver which is constructed once with its configuration and keeps its
+ * transposition tables, thread pool and scratch boards and buffers from one
+ * search to the next. The engine can be shared by many threads: every
+ * calling thread gets its own scratch state, and the sequential engines also
+ * their own transposition table. Parallel engines own a thread pool, so they
+ * should be closed when they are no longer needed.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
+ */
+public class SolverEngine implements AutoCloseable {
+    
+    /**
+     * The policy which chooses the depth of the searches
+     */
+    private final DepthPolicy depthPolicy;
+    
+    /**
+     * The evaluator of the leaves
+     */
+    private final Evaluator evaluator;
+    
+    /**
+     * The log2 of the number of entries of the transposition tables
+     */
+    private final int transpositionTableSizeBits;
+    
+    /**
+     * The pool of the helpers of the Lazy SMP search, or null for a
+     * sequential engine
+     */
+    private final ForkJoinPool pool;
+    
+    /**
+     * The transposition table shared by the threads of a parallel engine, or
+     * null for a sequential engine
+     */
+    private final TranspositionTable sharedTranspositionTable;
+    
+    /**
+     * The scratch state of every calling thread
+     */
+    private final ThreadLocal<Scratch> scratches = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+    
+    /**
+     * The state which a thread keeps from one search to the next
+     */
+    private final class Scratch {
+        /**
+         * The private board and buffers of the searches of the thread
+         */
+        private final SearchScratch search = new SearchScratch(evaluator);
+        
+        /**
+         * The private boards and buffers of the helpers of the Lazy SMP
+         * search, one per thread of the pool, or none for a sequential engine
+         */
+        private final SearchScratch[] helpers;
+        
+        /**
+         * The transposition table of the thread, or null for a parallel engine
+         */
+        private final TranspositionTable transpositionTable;
+        
+        /**
+         * Constructor
+         */
+        private Scratch() {
+            if(pool!=null) {
+                helpers = new SearchScratch[pool.getParallelism()];
+                for(int k=0;k<helpers.length;++k) {
+                    helpers[k] = new SearchScratch(evaluator);
+                }
+                transpositionTable = null;
+            }
+            else {
+                helpers = new SearchScratch[0];
+                transpositionTable = new LocalTranspositionTable(transpositionTableSizeBits);
+            }
+        }
+    }
+    
+    /**
+     * Constructor
+     * 
+     * @param config 
+     */
+    public SolverEngine(SolverConfig config) {
+        depthPolicy = config.getDepthPolicy();
+        evaluator = config.getEvaluator();
+        transpositionTableSizeBits = config.getTranspositionTableSizeBits();
+        
+        if(config.getParallelism()>1) {
+            pool = new ForkJoinPool(config.getParallelism()-1);
+            sharedTranspositionTable = new SharedTranspositionTable(transpositionTableSizeBits);
+        }
+        else {
+            pool = null;
+            sharedTranspositionTable = null;
+        }
+    }
+    
+    /**
+     * Constructor with the default configuration
+     */
+    public SolverEngine() {
+        this(new SolverConfig());
+    }
+    
+    /**
+     * Finds the best next move, with the depth chosen by the depth policy.
+     * 
+     * @param theBoard
+     * @return
+     * @throws CloneNotSupportedException 
+     */
+    public Direction findBestMove(Board theBoard) throws CloneNotSupportedException {
+        return findBestMove(theBoard, depthPolicy.chooseDepth(theBoard));
+    }
+    
+    /**
+     * Finds the best next move with a search of the given depth.
+     * 
+     * @param theBoard
+     * @param depth
+     * @return
+     * @throws CloneNotSupportedException 
+     */
+    public Direction findBestMove(Board theBoard, int depth) throws CloneNotSupportedException {
+        Scratch scratch = scratches.get();
+        if(pool!=null) {
+            return AIsolver.searchLazySmp(theBoard, scratch.search, scratch.helpers, depth, pool, evaluator, sharedTranspositionTable);
+        }
+        return AIsolver.search(theBoard, scratch.search, depth, evaluator, scratch.transpositionTable);
+    }
+    
+    /**
+     * Stops the thread pool of a parallel engine. A closed parallel engine
+     * can not search any more.
+     */
+    @Override
+    public void close() {
+        if(pool!=null) {
+            pool.shutdown();
+        }
+    }
+}
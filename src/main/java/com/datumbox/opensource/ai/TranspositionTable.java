@@ -0,0 +1,61 @@
+/* 
+ * Copyright (C) 2014 Vasilis Vryniotis <bbriniotis at datumbox.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.datumbox.opensource.ai;
+
+import com.datumbox.opensource.game.Board;
+
+/**
+ * Fixed-size cache of the scores of the searched positions. A score is only
+ * returned for the same position searched with the same remaining depth.
+ * Every entry remembers the generation of the search which stored it, so
+ * that the entries of old searches, which can rarely be reached again since
+ * the game score only grows, do not hold their slots forever. The generation
+ * is passed with every call, so that tasks of different searches can share a
+ * table without changing its state.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
+ */
+interface TranspositionTable {
+    
+    /**
+     * Returned by probe when the position is not in the table
+     */
+    int MISS = Integer.MIN_VALUE;
+    
+    /**
+     * Looks up the score of a position.
+     * 
+     * @param board
+     * @param depth
+     * @param player
+     * @param generation the generation of the search which looks up the position
+     * @return the score, or MISS if the position was not stored at this depth
+     */
+    int probe(Board board, int depth, AIsolver.Player player, int generation);
+    
+    /**
+     * Stores the score of a position, unless its slot holds a position stored
+     * by the same generation and searched deeper.
+     * 
+     * @param board
+     * @param depth
+     * @param player
+     * @param generation the generation of the search which stores the position
+     * @param score 
+     */
+    void store(Board board, int depth, AIsolver.Player player, int generation, int score);
+}
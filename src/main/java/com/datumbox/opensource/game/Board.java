@@ -49,33 +49,117 @@ public class Board implements Cloneable {
     private int score=0;
     
     /**
-     * The board values
+     * The number of bits used to store the log2 value of a single cell
      */
-    private int[][] boardArray;
+    public static final int CELL_BITS = 4;
     
     /**
-     * Random Generator which is used in the creation of random cells
+     * The number of bits used to store a single row of the board
      */
-    private final Random randomGenerator;
+    public static final int ROW_BITS = CELL_BITS*BOARD_SIZE;
+    
+    /**
+     * Mask of the bits of a single cell
+     */
+    public static final int CELL_MASK = (1<<CELL_BITS)-1;
+    
+    /**
+     * Mask of the bits of a single row
+     */
+    public static final int ROW_MASK = (1<<ROW_BITS)-1;
+    
+    /**
+     * The log2 of the largest value that fits in a cell
+     */
+    public static final int MAX_EXPONENT = CELL_MASK;
+    
+    /**
+     * The log2 of the target points
+     */
+    private static final int TARGET_EXPONENT = Integer.numberOfTrailingZeros(TARGET_POINTS);
+    
+    /**
+     * The board values. Every cell is stored as the log2 of its value (0 for
+     * empty cells) in 4 bits. The cell with id BOARD_SIZE*i+j occupies the bits
+     * starting at CELL_BITS*(BOARD_SIZE*i+j), so every row is a 16-bit word.
+     */
+    private long board;
+    
+    /**
+     * The Zobrist hash of the board, updated on every change of the board
+     */
+    private long hash;
+    
+    /**
+     * Random Generator which is used in the creation of random cells. It is
+     * never shared with clones.
+     */
+    private Random randomGenerator;
     
     /**
      * Constructor without arguments. It initializes randomly the Board
      */
     public Board() {
-        boardArray = new int[BOARD_SIZE][BOARD_SIZE];
-        randomGenerator = new Random(System.currentTimeMillis());
+        this(new Random());
+    }
+    
+    /**
+     * Constructor which initializes the Board with a seeded generator, so
+     * that the game can be reproduced.
+     * 
+     * @param seed 
+     */
+    public Board(long seed) {
+        this(new Random(seed));
+    }
+    
+    /**
+     * Constructor which initializes the Board with the given generator. Every
+     * game should have its own generator to avoid contention when games run
+     * in parallel.
+     * 
+     * @param randomGenerator 
+     */
+    public Board(Random randomGenerator) {
+        board = 0L;
+        hash = 0L;
+        this.randomGenerator = randomGenerator;
         
         addRandomCell();
         addRandomCell();
         
     }
     
+    /**
+     * Constructor which restores a snapshot. No random cells are added. The
+     * board creates an unseeded generator the first time it needs one,
+     * unless one is given with setRandomGenerator().
+     * 
+     * @param state 
+     */
+    public Board(BoardState state) {
+        setState(state);
+    }
+    
+    /**
+     * Setter for BoardArray. The board is left unchanged if any value is
+     * invalid.
+     * 
+     * @param boardArray 
+     * @throws IllegalArgumentException if a value is not 0 or a power of two up to 2^MAX_EXPONENT
+     */
     public void setBoardArray(int[][] boardArray) {
-    	this.boardArray = boardArray.clone();
+    	this.board = pack(boardArray);
+    	this.hash = ZobristTables.hash(board);
     }
     
     /**
-     * Deep clone
+     * Clone. The board is stored in a primitive field, so the shallow copy is
+     * also a deep one. The copy neither shares nor draws from the Random
+     * Generator of the original, so cloning never changes the random cells of
+     * the original. Like a board restored from a snapshot, the copy creates an
+     * unseeded generator the first time it needs one, unless one is given
+     * with setRandomGenerator().
      * 
      * @return
      * @throws CloneNotSupportedException
@@ -83,7 +167,7 @@ public class Board implements Cloneable {
     @Override
     public Object clone() throws CloneNotSupportedException {
         Board copy = (Board)super.clone();
-        copy.boardArray = clone2dArray(boardArray);
+        copy.randomGenerator = null;
         return copy;
     }
     
@@ -96,18 +180,59 @@ public class Board implements Cloneable {
         return score;
     }
     
+    /**
+     * Takes an immutable snapshot of the board and the score
+     * 
+     * @return 
+     */
+    public BoardState getState() {
+        return new BoardState(board, score);
+    }
+    
+    /**
+     * Restores the board and the score from a snapshot
+     * 
+     * @param state 
+     */
+    public void setState(BoardState state) {
+        board = state.getPackedBoard();
+        score = state.getScore();
+        hash = ZobristTables.hash(board);
+    }
+    
+    /**
+     * Getter for the 64-bit Zobrist hash of the board. The hash depends only
+     * on the cells and is maintained incrementally by every change.
+     * 
+     * @return 
+     */
+    public long getHash() {
+        return hash;
+    }
+    
     /**
      * Getter for BoardArray
      * @return 
      */
     public int[][] getBoardArray() {
-        return clone2dArray(boardArray);
+        return unpack(board);
+    }
+    
+    /**
+     * Getter for the packed board. Every cell is stored as the log2 of its
+     * value in 4 bits, with the cell BOARD_SIZE*i+j in the bits starting at
+     * 4*(BOARD_SIZE*i+j).
+     * 
+     * @return 
+     */
+    public long getPackedBoard() {
+        return board;
     }
     
     public void printBoardArray(){
     	for(int i=0; i<4; i++){
     		for(int j=0; j<4; j++){
-    			System.out.printf("%5d ", boardArray[i][j]);    			
+    			System.out.printf("%5d ", getCellValue(board, i, j));    			
     		}
     		System.out.println("");
     	}
@@ -115,14 +240,27 @@ public class Board implements Cloneable {
     }
     
     /**
-     * Getter for RandomGenerator field
+     * Getter for RandomGenerator field. A board without a generator creates
+     * an unseeded one.
      * 
      * @return 
      */
     public Random getRandomGenerator() {
+        if(randomGenerator==null) {
+            randomGenerator = new Random();
+        }
         return randomGenerator;
     }
     
+    /**
+     * Setter for RandomGenerator field
+     * 
+     * @param randomGenerator 
+     */
+    public void setRandomGenerator(Random randomGenerator) {
+        this.randomGenerator = randomGenerator;
+    }
+    
     /**
      * Performs one move (up, down, left or right).
      * 
@@ -130,71 +268,149 @@ public class Board implements Cloneable {
      * @return 
      */
     public int move(Direction direction) {    
+        return applyMove(direction, null);
+    }
+    
+    /**
+     * Performs one move and reports in the result whether the board changed,
+     * the points earned, the number of merges and the empty cells after the
+     * move.
+     * 
+     * @param direction
+     * @param result
+     * @return whether the board changed
+     */
+    public boolean move(Direction direction, MoveResult result) {
+        applyMove(direction, result);
+        return result.isChanged();
+    }
+    
+    /**
+     * Performs one move and fills the result, if one is given.
+     * 
+     * @param direction
+     * @param result
+     * @return the points earned
+     */
+    private int applyMove(Direction direction, MoveResult result) {
         int points = 0;
+        int merges = 0;
         
-        //rotate the board to make simplify the merging algorithm
-        if(direction==Direction.UP) {
-            rotateLeft();
-        }
-        else if(direction==Direction.RIGHT) {
-            rotateLeft();
-            rotateLeft();
+        //columns are moved as the rows of the transposed board
+        boolean vertical = (direction==Direction.UP || direction==Direction.DOWN);
+        long movedBoard = vertical?transpose(board):board;
+        
+        char[] rowTable = (direction==Direction.RIGHT || direction==Direction.DOWN)?RowTables.ROW_RIGHT:RowTables.ROW_LEFT;
+        long mergedBoard = 0L;
+        for(int i=0;i<BOARD_SIZE;++i) {
+            int row = (int)(movedBoard>>>(ROW_BITS*i)) & ROW_MASK;
+            mergedBoard |= ((long)rowTable[row])<<(ROW_BITS*i);
+            points += RowTables.ROW_POINTS[row];
+            merges += RowTables.ROW_MERGES[row];
         }
-        else if(direction==Direction.DOWN) {
-            rotateRight();
+        
+        score+=points;
+        
+        long previousBoard = board;
+        board = vertical?transpose(mergedBoard):mergedBoard;
+        hash = ZobristTables.update(hash, previousBoard, board);
+        
+        if(result!=null) {
+            result.set(previousBoard, board!=previousBoard, points, merges, getEmptyCellMask());
         }
         
+        return points;
+    }
+    
+    /**
+     * Computes the boards after each of the four moves in a single pass over
+     * the rows and the columns, without changing this board. The packed
+     * boards and the points earned are stored at the index
+     * direction.getCode() of the given arrays.
+     * 
+     * @param afterstates array of at least 4 elements
+     * @param points array of at least 4 elements
+     * @return the mask of the legal moves, as in getLegalMoveMask
+     */
+    public int getAfterstates(long[] afterstates, int[] points) {
+        long transposedBoard = transpose(board);
+        long left = 0L, right = 0L, up = 0L, down = 0L;
+        int rowPoints = 0, columnPoints = 0;
+        
         for(int i=0;i<BOARD_SIZE;++i) {
-            int lastMergePosition=0;
-            for(int j=1;j<BOARD_SIZE;++j) {
-                if(boardArray[i][j]==0) {
-                    continue; //skip moving zeros
-                }
-                
-                int previousPosition = j-1;
-                while(previousPosition>lastMergePosition && boardArray[i][previousPosition]==0) { //skip all the zeros
-                    --previousPosition;
-                }
-                
-                if(previousPosition==j) {
-                    //we can't move this at all
-                }
-                else if(boardArray[i][previousPosition]==0) {
-                    //move to empty value
-                    boardArray[i][previousPosition]=boardArray[i][j];
-                    boardArray[i][j]=0;
-                }
-                else if(boardArray[i][previousPosition]==boardArray[i][j]){
-                    //merge with matching value
-                    boardArray[i][previousPosition]*=2;
-                    boardArray[i][j]=0;
-                    points+=boardArray[i][previousPosition];
-                    lastMergePosition=previousPosition+1;
-                    
-                }
-                else if(boardArray[i][previousPosition]!=boardArray[i][j] && previousPosition+1!=j){
-                    boardArray[i][previousPosition+1]=boardArray[i][j];
-                    boardArray[i][j]=0;
-                }
-            }
+            int shift = ROW_BITS*i;
+            
+            int row = (int)(board>>>shift) & ROW_MASK;
+            left |= ((long)RowTables.ROW_LEFT[row])<<shift;
+            right |= ((long)RowTables.ROW_RIGHT[row])<<shift;
+            rowPoints += RowTables.ROW_POINTS[row];
+            
+            int column = (int)(transposedBoard>>>shift) & ROW_MASK;
+            up |= ((long)RowTables.ROW_LEFT[column])<<shift;
+            down |= ((long)RowTables.ROW_RIGHT[column])<<shift;
+            columnPoints += RowTables.ROW_POINTS[column];
         }
         
+        afterstates[Direction.LEFT.getCode()] = left;
+        afterstates[Direction.RIGHT.getCode()] = right;
+        afterstates[Direction.UP.getCode()] = transpose(up);
+        afterstates[Direction.DOWN.getCode()] = transpose(down);
         
-        score+=points;
+        points[Direction.LEFT.getCode()] = rowPoints;
+        points[Direction.RIGHT.getCode()] = rowPoints;
+        points[Direction.UP.getCode()] = columnPoints;
+        points[Direction.DOWN.getCode()] = columnPoints;
         
-        //reverse back the board to the original orientation
-        if(direction==Direction.UP) {
-            rotateRight();
+        int legalMoves = 0;
+        if(left!=board) {
+            legalMoves |= 1<<Direction.LEFT.getCode();
         }
-        else if(direction==Direction.RIGHT) {
-            rotateRight();
-            rotateRight();
+        if(right!=board) {
+            legalMoves |= 1<<Direction.RIGHT.getCode();
         }
-        else if(direction==Direction.DOWN) {
-            rotateLeft();
+        if(up!=transposedBoard) {
+            legalMoves |= 1<<Direction.UP.getCode();
+        }
+        if(down!=transposedBoard) {
+            legalMoves |= 1<<Direction.DOWN.getCode();
         }
         
-        return points;
+        return legalMoves;
+    }
+    
+    /**
+     * Replaces the board with an afterstate computed by getAfterstates and
+     * adds the points earned by that move to the score.
+     * 
+     * @param afterstate
+     * @param points 
+     */
+    public void setAfterstate(long afterstate, int points) {
+        hash = ZobristTables.update(hash, board, afterstate);
+        board = afterstate;
+        score += points;
+    }
+    
+    /**
+     * Takes back a move performed by move(Direction, MoveResult).
+     * 
+     * @param result the result filled by the move
+     */
+    public void undoMove(MoveResult result) {
+        undoMove(result.getPreviousBoard(), result.getPoints());
+    }
+    
+    /**
+     * Takes back a move or an afterstate, restoring the packed board from
+     * before the move and removing the points it earned.
+     * 
+     * @param previousBoard
+     * @param points 
+     */
+    public void undoMove(long previousBoard, int points) {
+        hash = ZobristTables.update(hash, board, previousBoard);
+        board = previousBoard;
+        score -= points;
     }
     
     /**
@@ -205,24 +421,61 @@ public class Board implements Cloneable {
     public List<Integer> getEmptyCellIds() {
         List<Integer> cellList = new ArrayList<>();
         
-        for(int i=0;i<BOARD_SIZE;++i) {
-            for(int j=0;j<BOARD_SIZE;++j) {
-                if(boardArray[i][j]==0) {
-                    cellList.add(BOARD_SIZE*i+j);
-                }
-            }
+        for(int mask=getEmptyCellMask();mask!=0;mask&=mask-1) {
+            cellList.add(Integer.numberOfTrailingZeros(mask));
         }
         
         return cellList;
     }
     
+    /**
+     * Returns a 16-bit mask of the empty cells, where the bit cellId is set
+     * when the cell is empty. The cells are numbered by row, so the empty
+     * cells can be walked without allocations:
+     * 
+     * <pre>
+     * for(int mask=board.getEmptyCellMask();mask!=0;mask&=mask-1) {
+     *     int cellId = Integer.numberOfTrailingZeros(mask);
+     * }
+     * </pre>
+     * 
+     * @return 
+     */
+    public int getEmptyCellMask() {
+        //set the lowest bit of every nibble which is zero
+        long empty = board | (board>>>1);
+        empty |= empty>>>2;
+        empty = ~empty & 0x1111111111111111L;
+        
+        //gather the lowest bits of the nibbles into the lowest 16 bits
+        empty = (empty | (empty>>>3)) & 0x0303030303030303L;
+        empty = (empty | (empty>>>6)) & 0x000F000F000F000FL;
+        empty = (empty | (empty>>>12)) & 0x000000FF000000FFL;
+        empty = (empty | (empty>>>24)) & 0xFFFFL;
+        
+        return (int)empty;
+    }
+    
     /**
      * Counts the number of empty cells
      * 
      * @return 
      */
     public int getNumberOfEmptyCells() {
-        return getEmptyCellIds().size();
+        return Integer.bitCount(getEmptyCellMask());
+    }
+    
+    /**
+     * Counts the different values of the non empty cells
+     * 
+     * @return 
+     */
+    public int getNumberOfDistinctTiles() {
+        int values = 0;
+        for(int cellId=0;cellId<BOARD_SIZE*BOARD_SIZE;++cellId) {
+            values |= 1<<((board>>>(CELL_BITS*cellId)) & CELL_MASK);
+        }
+        return Integer.bitCount(values & ~1); //ignore the empty cells
     }
     
     /**
@@ -235,11 +488,9 @@ public class Board implements Cloneable {
         if(score<MINIMUM_WIN_SCORE) { //speed optimization
             return false;
         }
-        for(int i=0;i<BOARD_SIZE;++i) {
-            for(int j=0;j<BOARD_SIZE;++j) {
-                if(boardArray[i][j]>=TARGET_POINTS) {
-                    return true;
-                }
+        for(int cellId=0;cellId<BOARD_SIZE*BOARD_SIZE;++cellId) {
+            if(((board>>>(CELL_BITS*cellId)) & CELL_MASK)>=TARGET_EXPONENT) {
+                return true;
             }
         }
         
@@ -258,24 +509,58 @@ public class Board implements Cloneable {
         if(hasWon()==true) {
             terminated=true;
         }
-        else {
-            if(getNumberOfEmptyCells()==0) { //if no more available cells
-                Board copyBoard = (Board) this.clone();
-                                
-                if(copyBoard.move(Direction.UP)==0 
-                   && copyBoard.move(Direction.RIGHT)==0 
-                   && copyBoard.move(Direction.DOWN)==0 
-                   && copyBoard.move(Direction.LEFT)==0) {
-                    terminated=true;
-                }
-                
-                //copyBoard=null;
-            }
+        else if(!canMove()) {
+            terminated=true;
         }
         
         return terminated;
     }
     
+    /**
+     * Checks whether there is an empty cell or a legal move, without cloning
+     * or moving the board.
+     * 
+     * @return 
+     */
+    public boolean canMove() {
+        if(getEmptyCellMask()!=0) { //speed optimization
+            return true;
+        }
+        return getLegalMoveMask()!=0;
+    }
+    
+    /**
+     * Returns a mask of the moves which change the board. The bit
+     * 1&lt;&lt;direction.getCode() is set when the move in that direction is
+     * legal.
+     * 
+     * @return 
+     */
+    public int getLegalMoveMask() {
+        int legalMoves = 0;
+        long transposedBoard = transpose(board);
+        
+        for(int i=0;i<BOARD_SIZE;++i) {
+            int row = (int)(board>>>(ROW_BITS*i)) & ROW_MASK;
+            if(RowTables.ROW_LEFT[row]!=row) {
+                legalMoves |= 1<<Direction.LEFT.getCode();
+            }
+            if(RowTables.ROW_RIGHT[row]!=row) {
+                legalMoves |= 1<<Direction.RIGHT.getCode();
+            }
+            
+            int column = (int)(transposedBoard>>>(ROW_BITS*i)) & ROW_MASK;
+            if(RowTables.ROW_LEFT[column]!=column) {
+                legalMoves |= 1<<Direction.UP.getCode();
+            }
+            if(RowTables.ROW_RIGHT[column]!=column) {
+                legalMoves |= 1<<Direction.DOWN.getCode();
+            }
+        }
+        
+        return legalMoves;
+    }
+    
     /**
      * Performs an Up, Right, Down or Left move
      * 
@@ -286,12 +571,9 @@ public class Board implements Cloneable {
     public ActionStatus action(Direction direction) throws CloneNotSupportedException {
         ActionStatus result = ActionStatus.CONTINUE;
         
-        int[][] currBoardArray = getBoardArray();
-        int newPoints = move(direction);
-        int[][] newBoardArray = getBoardArray();
+        MoveResult moveResult = new MoveResult();
         
-       
-        if(newPoints>0 || !isEqual(currBoardArray, newBoardArray)) {
+        if(move(direction, moveResult)) {
             addRandomCell();
         } else {
         
@@ -330,69 +612,116 @@ public class Board implements Cloneable {
      * @param i
      * @param j
      * @param value 
+     * @throws IllegalArgumentException if the value is not 0 or a power of two up to 2^MAX_EXPONENT
      */
     public void setEmptyCell(int i, int j, int value) {
-        if(boardArray[i][j]==0) {
-            boardArray[i][j]=value;
+        int exponent = log2(value);
+        int shift = CELL_BITS*(BOARD_SIZE*i+j);
+        if(((board>>>shift) & CELL_MASK)==0) {
+            board |= ((long)exponent)<<shift;
+            hash ^= ZobristTables.CELL_KEYS[BOARD_SIZE*i+j][exponent];
         }
     }
     
+    /**
+     * Empties a cell, taking back a setEmptyCell.
+     * 
+     * @param i
+     * @param j 
+     */
+    public void clearCell(int i, int j) {
+        int cellId = BOARD_SIZE*i+j;
+        hash ^= ZobristTables.CELL_KEYS[cellId][(int)(board>>>(CELL_BITS*cellId)) & CELL_MASK];
+        board &= ~(((long)CELL_MASK)<<(CELL_BITS*cellId));
+    }
+    
+    /**
+     * Flips the board upside down
+     */
     public void flip() {
-        int[][] flippedBoard = new int[BOARD_SIZE][BOARD_SIZE];
-        
-        for(int i=0;i<BOARD_SIZE;++i) {
-            for(int j=0;j<BOARD_SIZE;++j) {
-                flippedBoard[BOARD_SIZE-j-1][i] = boardArray[j][i];
-            }
-        }
-        
-        boardArray=flippedBoard;
+        board = flipRows(board);
+        hash = ZobristTables.hash(board);
     }
     
     /**
      * Rotates the board on the left
      */
     public void rotateLeft() {
-        int[][] rotatedBoard = new int[BOARD_SIZE][BOARD_SIZE];
-        
-        for(int i=0;i<BOARD_SIZE;++i) {
-            for(int j=0;j<BOARD_SIZE;++j) {
-                rotatedBoard[BOARD_SIZE-j-1][i] = boardArray[i][j];
-            }
-        }
-        
-        boardArray=rotatedBoard;
+        board = flipRows(transpose(board));
+        hash = ZobristTables.hash(board);
     }
     
     /**
      * Rotates the board on the right
      */
     public void rotateRight() {
-        int[][] rotatedBoard = new int[BOARD_SIZE][BOARD_SIZE];
-        
-        for(int i=0;i<BOARD_SIZE;++i) {
-            for(int j=0;j<BOARD_SIZE;++j) {
-                rotatedBoard[i][j]=boardArray[BOARD_SIZE-j-1][i];
-            }
-        }
+        board = mirrorRows(transpose(board));
+        hash = ZobristTables.hash(board);
+    }
+    
+    /**
+     * Transposes a packed board, swapping the cell (i,j) with the cell (j,i),
+     * so that the columns of the board can be read as rows.
+     * 
+     * @param board
+     * @return 
+     */
+    public static long transpose(long board) {
+        //swap the off-diagonal cells of every 2x2 block
+        long a1 = board & 0xF0F00F0FF0F00F0FL;
+        long a2 = board & 0x0000F0F00000F0F0L;
+        long a3 = board & 0x0F0F00000F0F0000L;
+        long a = a1 | (a2<<12) | (a3>>>12);
         
-        boardArray=rotatedBoard;
+        //swap the off-diagonal 2x2 blocks
+        long b1 = a & 0xFF00FF0000FF00FFL;
+        long b2 = a & 0x00FF00FF00000000L;
+        long b3 = a & 0x00000000FF00FF00L;
+        return b1 | (b2>>>24) | (b3<<24);
+    }
+    
+    /**
+     * Reverses the order of the rows of a packed board
+     * 
+     * @param board
+     * @return 
+     */
+    static long flipRows(long board) {
+        long reversed = Long.reverseBytes(board);
+        return ((reversed & 0x00FF00FF00FF00FFL)<<8) | ((reversed>>>8) & 0x00FF00FF00FF00FFL);
+    }
+    
+    /**
+     * Reverses the order of the cells inside every row of a packed board. A
+     * single packed row is reversed in place.
+     * 
+     * @param board
+     * @return 
+     */
+    public static long mirrorRows(long board) {
+        long swapped = ((board & 0x0F0F0F0F0F0F0F0FL)<<4) | ((board>>>4) & 0x0F0F0F0F0F0F0F0FL);
+        return ((swapped & 0x00FF00FF00FF00FFL)<<8) | ((swapped>>>8) & 0x00FF00FF00FF00FFL);
     }
     
     /**
      * Creates a new Random Cell
      */
     private boolean addRandomCell() {
-        List<Integer> emptyCells = getEmptyCellIds();
+        int emptyCells = getEmptyCellMask();
         
-        int listSize=emptyCells.size();
+        int numberOfEmptyCells=Integer.bitCount(emptyCells);
         
-        if(listSize==0) {
+        if(numberOfEmptyCells==0) {
             return false;
         }
         
-        int randomCellId=emptyCells.get(randomGenerator.nextInt(listSize));
-        int randomValue=(randomGenerator.nextDouble()< 0.9)?2:4;
+        //drop the lower empty cells until the chosen one is the lowest
+        Random random = getRandomGenerator();
+        for(int skip=random.nextInt(numberOfEmptyCells);skip>0;--skip) {
+            emptyCells&=emptyCells-1;
+        }
+        int randomCellId=Integer.numberOfTrailingZeros(emptyCells);
+        int randomValue=(random.nextDouble()< 0.9)?2:4;
         
         int i = randomCellId/BOARD_SIZE;
         int j = randomCellId%BOARD_SIZE;
@@ -403,17 +732,66 @@ public class Board implements Cloneable {
     }
     
     /**
-     * Clones a 2D array
+     * Returns the value of a cell of a packed board
      * 
-     * @param original
+     * @param board
+     * @param i
+     * @param j
+     * @return 
+     */
+    public static int getCellValue(long board, int i, int j) {
+        int exponent = (int)(board>>>(CELL_BITS*(BOARD_SIZE*i+j))) & CELL_MASK;
+        return (exponent==0)?0:1<<exponent;
+    }
+    
+    /**
+     * Returns the log2 of a cell value, 0 for empty cells
+     * 
+     * @param value
      * @return 
+     * @throws IllegalArgumentException if the value is not 0 or a power of two up to 2^MAX_EXPONENT
      */
-    private int[][] clone2dArray(int[][] original) { 
-        int[][] copy = new int[original.length][];
-        for(int i=0;i<original.length;++i) {
-            copy[i] = original[i].clone();
+    private static int log2(int value) {
+        if(value==0) {
+            return 0;
         }
-        return copy;
+        int exponent = Integer.numberOfTrailingZeros(value);
+        if(value!=(1<<exponent) || exponent<1 || exponent>MAX_EXPONENT) {
+            throw new IllegalArgumentException("The value of a cell must be 0 or a power of two up to "+(1<<MAX_EXPONENT)+": "+value);
+        }
+        return exponent;
+    }
+    
+    /**
+     * Packs a 2D array of cell values into a long
+     * 
+     * @param boardArray
+     * @return 
+     */
+    private static long pack(int[][] boardArray) {
+        long packedBoard = 0L;
+        for(int i=0;i<BOARD_SIZE;++i) {
+            for(int j=0;j<BOARD_SIZE;++j) {
+                packedBoard |= ((long)log2(boardArray[i][j]))<<(CELL_BITS*(BOARD_SIZE*i+j));
+            }
+        }
+        return packedBoard;
+    }
+    
+    /**
+     * Unpacks a packed board into a new 2D array of cell values
+     * 
+     * @param packedBoard
+     * @return 
+     */
+    private static int[][] unpack(long packedBoard) {
+        int[][] boardArray = new int[BOARD_SIZE][BOARD_SIZE];
+        for(int i=0;i<BOARD_SIZE;++i) {
+            for(int j=0;j<BOARD_SIZE;++j) {
+                boardArray[i][j] = getCellValue(packedBoard, i, j);
+            }
+        }
+        return boardArray;
     }
     
 
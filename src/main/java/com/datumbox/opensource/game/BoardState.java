@@ -0,0 +1,89 @@
+/* 
+ * Copyright (C) 2014 Vasilis Vryniotis <bbriniotis at datumbox.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.datumbox.opensource.game;
+
+/**
+ * Immutable snapshot of a Board, consisting of the packed board and the score.
+ * Two states are equal when both their cells and their scores are equal, so
+ * states can be used as keys of hash tables.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
+ */
+public final class BoardState {
+    /**
+     * The packed board
+     */
+    private final long packedBoard;
+    
+    /**
+     * The score
+     */
+    private final int score;
+    
+    /**
+     * Constructor
+     * 
+     * @param packedBoard
+     * @param score 
+     */
+    public BoardState(long packedBoard, int score) {
+        this.packedBoard = packedBoard;
+        this.score = score;
+    }
+    
+    /**
+     * Getter for packedBoard field
+     * 
+     * @return 
+     */
+    public long getPackedBoard() {
+        return packedBoard;
+    }
+    
+    /**
+     * Getter for score field
+     * 
+     * @return 
+     */
+    public int getScore() {
+        return score;
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if(this==obj) {
+            return true;
+        }
+        if(!(obj instanceof BoardState)) {
+            return false;
+        }
+        BoardState other = (BoardState)obj;
+        return packedBoard==other.packedBoard && score==other.score;
+    }
+    
+    @Override
+    public int hashCode() {
+        //spread the cells over all the bits before folding them into an int
+        long hash = (packedBoard*0x9E3779B97F4A7C15L) ^ score;
+        return (int)(hash ^ (hash>>>32));
+    }
+    
+    @Override
+    public String toString() {
+        return "BoardState[board=" + Long.toHexString(packedBoard) + ", score=" + score + "]";
+    }
+}
@@ -0,0 +1,115 @@
+/* 
+ * Copyright (C) 2014 Vasilis Vryniotis <bbriniotis at datumbox.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.datumbox.opensource.game;
+
+/**
+ * The outcome of a move on the Board. The object is filled by
+ * Board.move(Direction, MoveResult) and can be reused between moves. It also
+ * serves as the undo record of the move for Board.undoMove(MoveResult).
+ * 
+ * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
+ */
+public class MoveResult {
+    /**
+     * Whether the move changed the board
+     */
+    private boolean changed;
+    
+    /**
+     * The points earned by the move
+     */
+    private int points;
+    
+    /**
+     * The number of merges performed by the move
+     */
+    private int merges;
+    
+    /**
+     * The mask of the empty cells after the move
+     */
+    private int emptyCellMask;
+    
+    /**
+     * The packed board before the move
+     */
+    private long previousBoard;
+    
+    /**
+     * Stores the outcome of a move.
+     * 
+     * @param previousBoard
+     * @param changed
+     * @param points
+     * @param merges
+     * @param emptyCellMask 
+     */
+    void set(long previousBoard, boolean changed, int points, int merges, int emptyCellMask) {
+        this.previousBoard = previousBoard;
+        this.changed = changed;
+        this.points = points;
+        this.merges = merges;
+        this.emptyCellMask = emptyCellMask;
+    }
+    
+    /**
+     * Getter for changed field. A move which does not change the board is
+     * illegal.
+     * 
+     * @return 
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+    
+    /**
+     * Getter for points field
+     * 
+     * @return 
+     */
+    public int getPoints() {
+        return points;
+    }
+    
+    /**
+     * Getter for merges field
+     * 
+     * @return 
+     */
+    public int getMerges() {
+        return merges;
+    }
+    
+    /**
+     * Getter for emptyCellMask field. The bit cellId is set when the cell is
+     * empty after the move.
+     * 
+     * @return 
+     */
+    public int getEmptyCellMask() {
+        return emptyCellMask;
+    }
+    
+    /**
+     * Getter for previousBoard field
+     * 
+     * @return 
+     */
+    public long getPreviousBoard() {
+        return previousBoard;
+    }
+}
@@ -0,0 +1,142 @@
+/* 
+ * Copyright (C) 2014 Vasilis Vryniotis <bbriniotis at datumbox.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.datumbox.opensource.game;
+
+/**
+ * Lookup tables with the result of moving every possible packed row. A row is
+ * a 16-bit word containing the log2 values of its 4 cells, the first cell in
+ * the lowest bits.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
+ */
+final class RowTables {
+    
+    /**
+     * The number of possible rows
+     */
+    private static final int NUMBER_OF_ROWS = 1<<Board.ROW_BITS;
+    
+    /**
+     * The row after moving towards its first cell
+     */
+    static final char[] ROW_LEFT = new char[NUMBER_OF_ROWS];
+    
+    /**
+     * The row after moving towards its last cell
+     */
+    static final char[] ROW_RIGHT = new char[NUMBER_OF_ROWS];
+    
+    /**
+     * The points earned by the merges of a row. The same tiles merge in both
+     * directions, so the points do not depend on the direction of the move.
+     */
+    static final int[] ROW_POINTS = new int[NUMBER_OF_ROWS];
+    
+    /**
+     * The number of merges of a row, which is also independent of the
+     * direction of the move.
+     */
+    static final byte[] ROW_MERGES = new byte[NUMBER_OF_ROWS];
+    
+    static {
+        for(int row=0;row<NUMBER_OF_ROWS;++row) {
+            long merged = mergeRowLeft(row);
+            ROW_LEFT[row] = (char)(merged & Board.ROW_MASK);
+            ROW_POINTS[row] = (int)(merged>>>Board.ROW_BITS);
+            ROW_MERGES[row] = (byte)(countTiles(row)-countTiles(ROW_LEFT[row]));
+            
+            int reversedRow = reverseRow(row);
+            ROW_RIGHT[row] = (char)reverseRow((int)(mergeRowLeft(reversedRow) & Board.ROW_MASK));
+        }
+    }
+    
+    /**
+     * Private constructor, the class only holds static tables
+     */
+    private RowTables() {
+    }
+    
+    /**
+     * Reverses the order of the cells of a packed row
+     * 
+     * @param row
+     * @return 
+     */
+    static int reverseRow(int row) {
+        int reversedRow = 0;
+        for(int j=0;j<Board.BOARD_SIZE;++j) {
+            reversedRow |= ((row>>>(Board.CELL_BITS*j)) & Board.CELL_MASK)<<(Board.CELL_BITS*(Board.BOARD_SIZE-j-1));
+        }
+        return reversedRow;
+    }
+    
+    /**
+     * Counts the non empty cells of a packed row
+     * 
+     * @param row
+     * @return 
+     */
+    private static int countTiles(int row) {
+        int tiles = 0;
+        for(int j=0;j<Board.BOARD_SIZE;++j) {
+            if(((row>>>(Board.CELL_BITS*j)) & Board.CELL_MASK)!=0) {
+                ++tiles;
+            }
+        }
+        return tiles;
+    }
+    
+    /**
+     * Merges a packed row towards its first cell. The lower 16 bits of the
+     * result contain the merged row and the upper bits the points earned.
+     * 
+     * @param row
+     * @return 
+     */
+    private static long mergeRowLeft(int row) {
+        int points = 0;
+        int mergedRow = 0;
+        int target = 0; //the position where the next tile will be placed
+        int pending = 0; //the tile waiting for a possible merge
+        
+        for(int j=0;j<Board.BOARD_SIZE;++j) {
+            int exponent = (row>>>(Board.CELL_BITS*j)) & Board.CELL_MASK;
+            if(exponent==0) {
+                continue; //skip moving zeros
+            }
+            
+            if(pending==0) {
+                pending = exponent;
+            }
+            else if(pending==exponent && exponent<Board.MAX_EXPONENT) {
+                //merge with matching value
+                mergedRow |= (exponent+1)<<(Board.CELL_BITS*target++);
+                points += 1<<(exponent+1);
+                pending = 0;
+            }
+            else {
+                mergedRow |= pending<<(Board.CELL_BITS*target++);
+                pending = exponent;
+            }
+        }
+        if(pending!=0) {
+            mergedRow |= pending<<(Board.CELL_BITS*target);
+        }
+        
+        return (((long)points)<<Board.ROW_BITS) | mergedRow;
+    }
+}
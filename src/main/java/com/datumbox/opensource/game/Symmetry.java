@@ -0,0 +1,192 @@
+/* 
+ * Copyright (C) 2014 Vasilis Vryniotis <bbriniotis at datumbox.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.datumbox.opensource.game;
+
+import com.datumbox.opensource.dataobjects.Direction;
+
+/**
+ * The 8 symmetries of the board (rotations and reflections) on packed boards.
+ * A symmetry is a number from 0 to 7: bit 2 transposes the board, then bit 0
+ * reverses the cells of every row and then bit 1 reverses the order of the
+ * rows. Symmetry 0 is the identity.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
+ */
+public final class Symmetry {
+    
+    /**
+     * The number of symmetries of the board
+     */
+    public static final int NUMBER_OF_SYMMETRIES = 8;
+    
+    /**
+     * Reverses the cells of every row
+     */
+    private static final int MIRROR = 1;
+    
+    /**
+     * Reverses the order of the rows
+     */
+    private static final int FLIP = 2;
+    
+    /**
+     * Transposes the board
+     */
+    private static final int TRANSPOSE = 4;
+    
+    /**
+     * Private constructor, the class only holds static methods
+     */
+    private Symmetry() {
+    }
+    
+    /**
+     * Applies a symmetry to a packed board
+     * 
+     * @param board
+     * @param symmetry
+     * @return 
+     */
+    public static long transform(long board, int symmetry) {
+        if((symmetry & TRANSPOSE)!=0) {
+            board = Board.transpose(board);
+        }
+        if((symmetry & MIRROR)!=0) {
+            board = Board.mirrorRows(board);
+        }
+        if((symmetry & FLIP)!=0) {
+            board = Board.flipRows(board);
+        }
+        return board;
+    }
+    
+    /**
+     * Finds the symmetry which maps the board to its canonical form, the
+     * smallest of its 8 transformed boards.
+     * 
+     * @param board
+     * @return 
+     */
+    public static int canonicalSymmetry(long board) {
+        int bestSymmetry = 0;
+        long bestBoard = board;
+        for(int symmetry=1;symmetry<NUMBER_OF_SYMMETRIES;++symmetry) {
+            long transformedBoard = transform(board, symmetry);
+            if(transformedBoard<bestBoard) {
+                bestBoard = transformedBoard;
+                bestSymmetry = symmetry;
+            }
+        }
+        return bestSymmetry;
+    }
+    
+    /**
+     * Returns the canonical form of a packed board. All the symmetric boards
+     * have the same canonical form.
+     * 
+     * @param board
+     * @return 
+     */
+    public static long canonical(long board) {
+        return transform(board, canonicalSymmetry(board));
+    }
+    
+    /**
+     * Maps a move on the original board to the equivalent move on the board
+     * transformed by the symmetry.
+     * 
+     * @param direction
+     * @param symmetry
+     * @return 
+     */
+    public static Direction transform(Direction direction, int symmetry) {
+        if((symmetry & TRANSPOSE)!=0) {
+            direction = transpose(direction);
+        }
+        if((symmetry & MIRROR)!=0) {
+            direction = mirror(direction);
+        }
+        if((symmetry & FLIP)!=0) {
+            direction = flip(direction);
+        }
+        return direction;
+    }
+    
+    /**
+     * Maps a move on the board transformed by the symmetry back to the
+     * equivalent move on the original board.
+     * 
+     * @param direction
+     * @param symmetry
+     * @return 
+     */
+    public static Direction inverse(Direction direction, int symmetry) {
+        if((symmetry & FLIP)!=0) {
+            direction = flip(direction);
+        }
+        if((symmetry & MIRROR)!=0) {
+            direction = mirror(direction);
+        }
+        if((symmetry & TRANSPOSE)!=0) {
+            direction = transpose(direction);
+        }
+        return direction;
+    }
+    
+    /**
+     * Maps a direction through the transposition of the board
+     * 
+     * @param direction
+     * @return 
+     */
+    private static Direction transpose(Direction direction) {
+        switch(direction) {
+            case UP:    return Direction.LEFT;
+            case LEFT:  return Direction.UP;
+            case DOWN:  return Direction.RIGHT;
+            default:    return Direction.DOWN;
+        }
+    }
+    
+    /**
+     * Maps a direction through the reversal of the cells of the rows
+     * 
+     * @param direction
+     * @return 
+     */
+    private static Direction mirror(Direction direction) {
+        switch(direction) {
+            case LEFT:  return Direction.RIGHT;
+            case RIGHT: return Direction.LEFT;
+            default:    return direction;
+        }
+    }
+    
+    /**
+     * Maps a direction through the reversal of the order of the rows
+     * 
+     * @param direction
+     * @return 
+     */
+    private static Direction flip(Direction direction) {
+        switch(direction) {
+            case UP:    return Direction.DOWN;
+            case DOWN:  return Direction.UP;
+            default:    return direction;
+        }
+    }
+}
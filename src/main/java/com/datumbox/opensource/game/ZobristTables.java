@@ -0,0 +1,104 @@
+/* 
+ * Copyright (C) 2014 Vasilis Vryniotis <bbriniotis at datumbox.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.datumbox.opensource.game;
+
+import java.util.Random;
+
+/**
+ * Random keys of the Zobrist hash of the board. The hash of a board is the
+ * XOR of the keys of its cells, so it can be updated whenever a cell or a row
+ * changes.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
+ */
+final class ZobristTables {
+    
+    /**
+     * Fixed seed, so that the hashes are the same in every run
+     */
+    private static final long SEED = 2048L;
+    
+    /**
+     * The key of every cell id and log2 value. Empty cells have no key.
+     */
+    static final long[][] CELL_KEYS = new long[Board.BOARD_SIZE*Board.BOARD_SIZE][Board.MAX_EXPONENT+1];
+    
+    /**
+     * The XOR of the cell keys of every packed row, for every row index
+     */
+    static final long[][] ROW_KEYS = new long[Board.BOARD_SIZE][1<<Board.ROW_BITS];
+    
+    static {
+        Random random = new Random(SEED);
+        for(int cellId=0;cellId<CELL_KEYS.length;++cellId) {
+            for(int exponent=1;exponent<=Board.MAX_EXPONENT;++exponent) {
+                CELL_KEYS[cellId][exponent] = random.nextLong();
+            }
+        }
+        
+        for(int i=0;i<Board.BOARD_SIZE;++i) {
+            for(int row=0;row<ROW_KEYS[i].length;++row) {
+                long key = 0L;
+                for(int j=0;j<Board.BOARD_SIZE;++j) {
+                    key ^= CELL_KEYS[Board.BOARD_SIZE*i+j][(row>>>(Board.CELL_BITS*j)) & Board.CELL_MASK];
+                }
+                ROW_KEYS[i][row] = key;
+            }
+        }
+    }
+    
+    /**
+     * Private constructor, the class only holds static tables
+     */
+    private ZobristTables() {
+    }
+    
+    /**
+     * Computes the hash of a packed board from scratch
+     * 
+     * @param board
+     * @return 
+     */
+    static long hash(long board) {
+        long hash = 0L;
+        for(int i=0;i<Board.BOARD_SIZE;++i) {
+            hash ^= ROW_KEYS[i][(int)(board>>>(Board.ROW_BITS*i)) & Board.ROW_MASK];
+        }
+        return hash;
+    }
+    
+    /**
+     * Updates a hash after the board changed, looking up only the rows which
+     * differ.
+     * 
+     * @param hash
+     * @param oldBoard
+     * @param newBoard
+     * @return 
+     */
+    static long update(long hash, long oldBoard, long newBoard) {
+        long changed = oldBoard ^ newBoard;
+        for(int i=0;i<Board.BOARD_SIZE;++i) {
+            int shift = Board.ROW_BITS*i;
+            if(((changed>>>shift) & Board.ROW_MASK)!=0) {
+                hash ^= ROW_KEYS[i][(int)(oldBoard>>>shift) & Board.ROW_MASK]
+                      ^ ROW_KEYS[i][(int)(newBoard>>>shift) & Board.ROW_MASK];
+            }
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,373 @@
+/* 
+ * Copyright (C) 2014 Vasilis Vryniotis <bbriniotis at datumbox.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.datumbox.opensource.game;
+
+import com.datumbox.opensource.dataobjects.Direction;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Compares the bit tricks of the packed board with the int[][] board which it
+ * replaced, on random boards.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
+ */
+public class BoardTest {
+    
+    /**
+     * The number of random boards of every test
+     */
+    private static final int NUMBER_OF_BOARDS = 20000;
+    
+    /**
+     * Test of transpose method, of class Board.
+     */
+    @Test
+    public void testTranspose() {
+        Random random = new Random(1);
+        for(int k=0;k<NUMBER_OF_BOARDS;++k) {
+            int[][] boardArray = randomBoardArray(random, Board.MAX_EXPONENT);
+            int[][] expected = new int[Board.BOARD_SIZE][Board.BOARD_SIZE];
+            for(int i=0;i<Board.BOARD_SIZE;++i) {
+                for(int j=0;j<Board.BOARD_SIZE;++j) {
+                    expected[i][j] = boardArray[j][i];
+                }
+            }
+            assertEquals(pack(expected), Board.transpose(pack(boardArray)));
+        }
+    }
+    
+    /**
+     * Test of flipRows method, of class Board.
+     */
+    @Test
+    public void testFlipRows() {
+        Random random = new Random(2);
+        for(int k=0;k<NUMBER_OF_BOARDS;++k) {
+            int[][] boardArray = randomBoardArray(random, Board.MAX_EXPONENT);
+            assertEquals(pack(flip(boardArray)), Board.flipRows(pack(boardArray)));
+        }
+    }
+    
+    /**
+     * Test of mirrorRows method, of class Board.
+     */
+    @Test
+    public void testMirrorRows() {
+        Random random = new Random(3);
+        for(int k=0;k<NUMBER_OF_BOARDS;++k) {
+            int[][] boardArray = randomBoardArray(random, Board.MAX_EXPONENT);
+            int[][] expected = new int[Board.BOARD_SIZE][Board.BOARD_SIZE];
+            for(int i=0;i<Board.BOARD_SIZE;++i) {
+                for(int j=0;j<Board.BOARD_SIZE;++j) {
+                    expected[i][Board.BOARD_SIZE-j-1] = boardArray[i][j];
+                }
+            }
+            assertEquals(pack(expected), Board.mirrorRows(pack(boardArray)));
+        }
+    }
+    
+    /**
+     * Test of getEmptyCellMask method, of class Board.
+     */
+    @Test
+    public void testGetEmptyCellMask() {
+        Random random = new Random(4);
+        for(int k=0;k<NUMBER_OF_BOARDS;++k) {
+            int[][] boardArray = randomBoardArray(random, Board.MAX_EXPONENT);
+            int expected = 0;
+            for(int i=0;i<Board.BOARD_SIZE;++i) {
+                for(int j=0;j<Board.BOARD_SIZE;++j) {
+                    if(boardArray[i][j]==0) {
+                        expected |= 1<<(Board.BOARD_SIZE*i+j);
+                    }
+                }
+            }
+            assertEquals(expected, board(boardArray).getEmptyCellMask());
+        }
+    }
+    
+    /**
+     * Test of flip, rotateLeft and rotateRight methods, of class Board.
+     */
+    @Test
+    public void testRotations() {
+        Random random = new Random(5);
+        for(int k=0;k<NUMBER_OF_BOARDS;++k) {
+            int[][] boardArray = randomBoardArray(random, Board.MAX_EXPONENT);
+            
+            Board board = board(boardArray);
+            board.flip();
+            assertArrayEquals(flip(boardArray), board.getBoardArray());
+            
+            board = board(boardArray);
+            board.rotateLeft();
+            assertArrayEquals(rotateLeft(boardArray), board.getBoardArray());
+            
+            board = board(boardArray);
+            board.rotateRight();
+            assertArrayEquals(rotateRight(boardArray), board.getBoardArray());
+            assertEquals(ZobristTables.hash(board.getPackedBoard()), board.getHash());
+        }
+    }
+    
+    /**
+     * Test of move method, of class Board. The tiles are at most 16384, so
+     * that no merge goes beyond the largest value of a packed cell.
+     */
+    @Test
+    public void testMove() {
+        Random random = new Random(6);
+        for(int k=0;k<NUMBER_OF_BOARDS;++k) {
+            int[][] boardArray = randomBoardArray(random, 1+random.nextInt(Board.MAX_EXPONENT-1));
+            for(Direction direction : Direction.values()) {
+                int[][] expected = copy(boardArray);
+                int expectedPoints = move(expected, direction);
+                
+                Board board = board(boardArray);
+                assertEquals(expectedPoints, board.move(direction));
+                assertArrayEquals(expected, board.getBoardArray());
+                assertEquals(expectedPoints, board.getScore());
+                assertEquals(ZobristTables.hash(board.getPackedBoard()), board.getHash());
+            }
+        }
+    }
+    
+    /**
+     * Test of getAfterstates method, of class Board.
+     */
+    @Test
+    public void testGetAfterstates() {
+        Random random = new Random(7);
+        long[] afterstates = new long[4];
+        int[] points = new int[4];
+        for(int k=0;k<NUMBER_OF_BOARDS;++k) {
+            int[][] boardArray = randomBoardArray(random, 1+random.nextInt(Board.MAX_EXPONENT-1));
+            int legalMoves = board(boardArray).getAfterstates(afterstates, points);
+            for(Direction direction : Direction.values()) {
+                int[][] expected = copy(boardArray);
+                int expectedPoints = move(expected, direction);
+                int code = direction.getCode();
+                
+                assertEquals(pack(expected), afterstates[code]);
+                assertEquals(expectedPoints, points[code]);
+                assertEquals(!equal(expected, boardArray), (legalMoves & (1<<code))!=0);
+            }
+        }
+    }
+    
+    /**
+     * Test of setEmptyCell and setBoardArray methods, of class Board, with
+     * values which do not fit in a packed cell.
+     */
+    @Test
+    public void testInvalidValues() {
+        Board board = new Board(new BoardState(0L, 0));
+        board.setEmptyCell(1, 1, 2);
+        long packedBoard = board.getPackedBoard();
+        long hash = board.getHash();
+        
+        for(int value : new int[]{1<<(Board.MAX_EXPONENT+1), 1, 3, -2}) {
+            try {
+                board.setEmptyCell(0, 0, value);
+                fail("setEmptyCell accepted "+value);
+            }
+            catch(IllegalArgumentException e) {
+                assertEquals(packedBoard, board.getPackedBoard());
+                assertEquals(hash, board.getHash());
+            }
+            
+            int[][] boardArray = new int[Board.BOARD_SIZE][Board.BOARD_SIZE];
+            boardArray[0][1] = value;
+            try {
+                board.setBoardArray(boardArray);
+                fail("setBoardArray accepted "+value);
+            }
+            catch(IllegalArgumentException e) {
+                assertEquals(packedBoard, board.getPackedBoard());
+                assertEquals(hash, board.getHash());
+            }
+        }
+        
+        board.setEmptyCell(0, 0, 1<<Board.MAX_EXPONENT);
+        assertEquals(1<<Board.MAX_EXPONENT, board.getBoardArray()[0][0]);
+    }
+    
+    /**
+     * Creates a random board array, with about half of its cells empty
+     * 
+     * @param random
+     * @param maxExponent the log2 of the largest tile
+     * @return 
+     */
+    private static int[][] randomBoardArray(Random random, int maxExponent) {
+        int[][] boardArray = new int[Board.BOARD_SIZE][Board.BOARD_SIZE];
+        for(int i=0;i<Board.BOARD_SIZE;++i) {
+            for(int j=0;j<Board.BOARD_SIZE;++j) {
+                if(random.nextBoolean()) {
+                    boardArray[i][j] = 1<<(1+random.nextInt(maxExponent));
+                }
+            }
+        }
+        return boardArray;
+    }
+    
+    /**
+     * Creates a board from a board array
+     * 
+     * @param boardArray
+     * @return 
+     */
+    private static Board board(int[][] boardArray) {
+        Board board = new Board(new BoardState(0L, 0));
+        board.setBoardArray(boardArray);
+        return board;
+    }
+    
+    /**
+     * Packs a board array
+     * 
+     * @param boardArray
+     * @return 
+     */
+    private static long pack(int[][] boardArray) {
+        return board(boardArray).getPackedBoard();
+    }
+    
+    /**
+     * Copies a board array
+     * 
+     * @param boardArray
+     * @return 
+     */
+    private static int[][] copy(int[][] boardArray) {
+        int[][] copy = new int[Board.BOARD_SIZE][];
+        for(int i=0;i<Board.BOARD_SIZE;++i) {
+            copy[i] = boardArray[i].clone();
+        }
+        return copy;
+    }
+    
+    /**
+     * Checks whether two board arrays are equal
+     * 
+     * @param boardArray
+     * @param otherBoardArray
+     * @return 
+     */
+    private static boolean equal(int[][] boardArray, int[][] otherBoardArray) {
+        for(int i=0;i<Board.BOARD_SIZE;++i) {
+            for(int j=0;j<Board.BOARD_SIZE;++j) {
+                if(boardArray[i][j]!=otherBoardArray[i][j]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Flips a board array upside down, as the int[][] board did
+     * 
+     * @param boardArray
+     * @return 
+     */
+    private static int[][] flip(int[][] boardArray) {
+        int[][] flippedBoard = new int[Board.BOARD_SIZE][Board.BOARD_SIZE];
+        for(int i=0;i<Board.BOARD_SIZE;++i) {
+            for(int j=0;j<Board.BOARD_SIZE;++j) {
+                flippedBoard[Board.BOARD_SIZE-j-1][i] = boardArray[j][i];
+            }
+        }
+        return flippedBoard;
+    }
+    
+    /**
+     * Rotates a board array on the left, as the int[][] board did
+     * 
+     * @param boardArray
+     * @return 
+     */
+    private static int[][] rotateLeft(int[][] boardArray) {
+        int[][] rotatedBoard = new int[Board.BOARD_SIZE][Board.BOARD_SIZE];
+        for(int i=0;i<Board.BOARD_SIZE;++i) {
+            for(int j=0;j<Board.BOARD_SIZE;++j) {
+                rotatedBoard[Board.BOARD_SIZE-j-1][i] = boardArray[i][j];
+            }
+        }
+        return rotatedBoard;
+    }
+    
+    /**
+     * Rotates a board array on the right, as the int[][] board did
+     * 
+     * @param boardArray
+     * @return 
+     */
+    private static int[][] rotateRight(int[][] boardArray) {
+        int[][] rotatedBoard = new int[Board.BOARD_SIZE][Board.BOARD_SIZE];
+        for(int i=0;i<Board.BOARD_SIZE;++i) {
+            for(int j=0;j<Board.BOARD_SIZE;++j) {
+                rotatedBoard[i][j] = boardArray[Board.BOARD_SIZE-j-1][i];
+            }
+        }
+        return rotatedBoard;
+    }
+    
+    /**
+     * Moves a board array in place, as the int[][] board did: it rotates the
+     * board so that the move is to the left, merges the rows and rotates it
+     * back.
+     * 
+     * @param boardArray
+     * @param direction
+     * @return the points earned
+     */
+    private static int move(int[][] boardArray, Direction direction) {
+        int[][] movedBoard = boardArray;
+        if(direction==Direction.UP) {
+            movedBoard = rotateLeft(movedBoard);
+        }
+        else if(direction==Direction.RIGHT) {
+            movedBoard = rotateLeft(rotateLeft(movedBoard));
+        }
+        else if(direction==Direction.DOWN) {
+            movedBoard = rotateRight(movedBoard);
+        }
+        
+        int points = 0;
+        for(int i=0;i<Board.BOARD_SIZE;++i) {
+            points += RowTablesTest.mergeLeft(movedBoard[i]);
+        }
+        
+        if(direction==Direction.UP) {
+            movedBoard = rotateRight(movedBoard);
+        }
+        else if(direction==Direction.RIGHT) {
+            movedBoard = rotateRight(rotateRight(movedBoard));
+        }
+        else if(direction==Direction.DOWN) {
+            movedBoard = rotateLeft(movedBoard);
+        }
+        
+        for(int i=0;i<Board.BOARD_SIZE;++i) {
+            boardArray[i] = movedBoard[i];
+        }
+        return points;
+    }
+}
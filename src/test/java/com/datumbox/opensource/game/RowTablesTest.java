@@ -0,0 +1,186 @@
+/* 
+ * Copyright (C) 2014 Vasilis Vryniotis <bbriniotis at datumbox.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.datumbox.opensource.game;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Compares every entry of the row tables with the merging of the int[][]
+ * board which they replaced.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis at datumbox.com>
+ */
+public class RowTablesTest {
+    
+    /**
+     * The number of possible rows
+     */
+    private static final int NUMBER_OF_ROWS = 1<<Board.ROW_BITS;
+    
+    /**
+     * Test of ROW_LEFT, ROW_RIGHT, ROW_POINTS and ROW_MERGES, of class
+     * RowTables.
+     */
+    @Test
+    public void testRowTables() {
+        for(int row=0;row<NUMBER_OF_ROWS;++row) {
+            int[] left = unpack(row);
+            int tiles = countTiles(left);
+            int points = mergeLeft(left);
+            
+            int[] right = reverse(unpack(row));
+            assertEquals(points, mergeLeft(right));
+            right = reverse(right);
+            
+            if(max(left)>1<<Board.MAX_EXPONENT) {
+                //the packed board can not hold the merge of two 32768 tiles
+                continue;
+            }
+            
+            assertEquals(pack(left), RowTables.ROW_LEFT[row]);
+            assertEquals(pack(right), RowTables.ROW_RIGHT[row]);
+            assertEquals(points, RowTables.ROW_POINTS[row]);
+            assertEquals(tiles-countTiles(left), RowTables.ROW_MERGES[row]);
+        }
+    }
+    
+    /**
+     * Test of reverseRow method, of class RowTables, and of mirrorRows method,
+     * of class Board, on single rows.
+     */
+    @Test
+    public void testReverseRow() {
+        for(int row=0;row<NUMBER_OF_ROWS;++row) {
+            int reversedRow = pack(reverse(unpack(row)));
+            assertEquals(reversedRow, RowTables.reverseRow(row));
+            assertEquals(reversedRow, Board.mirrorRows(row));
+        }
+    }
+    
+    /**
+     * Merges a row towards its first cell in place, as the int[][] board did.
+     * 
+     * @param row the values of the cells
+     * @return the points earned
+     */
+    static int mergeLeft(int[] row) {
+        int points = 0;
+        int lastMergePosition=0;
+        for(int j=1;j<Board.BOARD_SIZE;++j) {
+            if(row[j]==0) {
+                continue; //skip moving zeros
+            }
+            
+            int previousPosition = j-1;
+            while(previousPosition>lastMergePosition && row[previousPosition]==0) { //skip all the zeros
+                --previousPosition;
+            }
+            
+            if(row[previousPosition]==0) {
+                //move to empty value
+                row[previousPosition]=row[j];
+                row[j]=0;
+            }
+            else if(row[previousPosition]==row[j]) {
+                //merge with matching value
+                row[previousPosition]*=2;
+                row[j]=0;
+                points+=row[previousPosition];
+                lastMergePosition=previousPosition+1;
+            }
+            else if(previousPosition+1!=j) {
+                row[previousPosition+1]=row[j];
+                row[j]=0;
+            }
+        }
+        return points;
+    }
+    
+    /**
+     * Unpacks a row into the values of its cells
+     * 
+     * @param row
+     * @return 
+     */
+    private static int[] unpack(int row) {
+        int[] values = new int[Board.BOARD_SIZE];
+        for(int j=0;j<Board.BOARD_SIZE;++j) {
+            values[j] = Board.getCellValue(row, 0, j);
+        }
+        return values;
+    }
+    
+    /**
+     * Packs the values of the cells of a row
+     * 
+     * @param values
+     * @return 
+     */
+    private static int pack(int[] values) {
+        int row = 0;
+        for(int j=0;j<Board.BOARD_SIZE;++j) {
+            int exponent = (values[j]==0)?0:Integer.numberOfTrailingZeros(values[j]);
+            row |= exponent<<(Board.CELL_BITS*j);
+        }
+        return row;
+    }
+    
+    /**
+     * Returns the values of a row in reverse order
+     * 
+     * @param values
+     * @return 
+     */
+    private static int[] reverse(int[] values) {
+        int[] reversed = new int[Board.BOARD_SIZE];
+        for(int j=0;j<Board.BOARD_SIZE;++j) {
+            reversed[Board.BOARD_SIZE-j-1] = values[j];
+        }
+        return reversed;
+    }
+    
+    /**
+     * Counts the non empty cells of a row
+     * 
+     * @param values
+     * @return 
+     */
+    private static int countTiles(int[] values) {
+        int tiles = 0;
+        for(int value : values) {
+            if(value!=0) {
+                ++tiles;
+            }
+        }
+        return tiles;
+    }
+    
+    /**
+     * Returns the largest value of a row
+     * 
+     * @param values
+     * @return 
+     */
+    private static int max(int[] values) {
+        int max = 0;
+        for(int value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+}